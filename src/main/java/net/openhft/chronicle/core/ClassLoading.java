@@ -34,13 +34,13 @@ public enum ClassLoading {
     }
 
     /**
-     * Define a class into the current class loader
+     * Define a class into a class loader
      * @param classLoader to load the class.
      * @param className of the class to define.
      * @param bytes byte code for the class
      * @return the class loaded.
      */
-    private static Class defineClass(ClassLoader classLoader, String className, byte[] bytes) {
+    public static Class defineClass(ClassLoader classLoader, String className, byte[] bytes) {
         return UnsafeMemory.UNSAFE.defineClass(className, bytes, 0, bytes.length, classLoader, null);
     }
 }
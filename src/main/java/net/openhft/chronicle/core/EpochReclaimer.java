@@ -0,0 +1,221 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core;
+
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.core.util.FieldAccessor;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Epoch based reclamation of memory shared with readers, an alternative to reserving a ReferenceCounted for
+ * each access to a read mostly structure.
+ * <p>
+ * A reader calls enter() before it reads and exit() after, which only write a field of its own. A writer
+ * unlinks a block of native memory or a mapping, then retires it, and the block is freed once every reader
+ * in a critical region has entered after it was retired.
+ * <pre>
+ * EpochReclaimer.Reader reader = reclaimer.reader();
+ * reader.enter();
+ * try {
+ *     // read the structure
+ * } finally {
+ *     reader.exit();
+ * }
+ * </pre>
+ */
+public class EpochReclaimer implements Closeable {
+    private static final Memory MEMORY = OS.memory();
+    private static final Reader[] NO_READERS = {};
+
+    private final ThreadLocal<Reader> readerTL = ThreadLocal.withInitial(this::register);
+    private final ArrayDeque<Retired> retired = new ArrayDeque<>();
+    private volatile Reader[] readers = NO_READERS;
+    // 0 is reserved for a reader not in a critical region.
+    private volatile long epoch = 1;
+    private boolean closed = false;
+
+    /**
+     * @return the reader for the current thread, registered on first use, or again after it was closed.
+     */
+    public Reader reader() {
+        Reader reader = readerTL.get();
+        if (reader.closed) {
+            reader = register();
+            readerTL.set(reader);
+        }
+        return reader;
+    }
+
+    /**
+     * Register a reader to be used by one thread at a time, e.g. a thread in a pool.
+     *
+     * @return a new reader which should be closed when no longer used.
+     */
+    public synchronized Reader register() {
+        if (closed)
+            throw new IllegalStateException("Closed");
+        Reader reader = new Reader(this);
+        Reader[] readers = Arrays.copyOf(this.readers, this.readers.length + 1);
+        readers[readers.length - 1] = reader;
+        this.readers = readers;
+        return reader;
+    }
+
+    synchronized void deregister(Reader reader) {
+        Reader[] readers = this.readers;
+        for (int i = 0; i < readers.length; i++) {
+            if (readers[i] == reader) {
+                Reader[] readers2 = new Reader[readers.length - 1];
+                System.arraycopy(readers, 0, readers2, 0, i);
+                System.arraycopy(readers, i + 1, readers2, i, readers2.length - i);
+                this.readers = readers2;
+                break;
+            }
+        }
+        reclaim();
+    }
+
+    public long epoch() {
+        return epoch;
+    }
+
+    /**
+     * Free native memory once no reader can still be reading it.
+     *
+     * @param address of memory already unreachable to new readers
+     * @param size    as allocated
+     */
+    public void retireMemory(long address, long size) {
+        retire(() -> MEMORY.freeMemory(address, size));
+    }
+
+    /**
+     * Run an action, e.g. an OS.Unmapper, once no reader can still be reading what it frees.
+     *
+     * @param free to run
+     */
+    public synchronized void retire(Runnable free) {
+        if (closed) {
+            free.run();
+            return;
+        }
+        retired.add(new Retired(epoch, free));
+        // readers which enter from here on can't see what was retired.
+        epoch++;
+        reclaim();
+    }
+
+    /**
+     * Free what has been retired and is no longer being read. This is also done on each retire.
+     *
+     * @return the number of retired actions run.
+     */
+    public synchronized int reclaim() {
+        long minEpoch = Long.MAX_VALUE;
+        for (Reader reader : readers) {
+            long e = reader.epoch;
+            if (e != 0 && e < minEpoch)
+                minEpoch = e;
+        }
+        int count = 0;
+        for (Retired r; (r = retired.peek()) != null && r.epoch < minEpoch; count++) {
+            retired.poll();
+            r.free.run();
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of retired actions still to run.
+     */
+    public synchronized int retiredCount() {
+        return retired.size();
+    }
+
+    /**
+     * Run all the retired actions, assuming there are no readers left. Later retires run immediately.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (Retired r; (r = retired.poll()) != null; )
+            r.free.run();
+    }
+
+    static final class Retired {
+        final long epoch;
+        final Runnable free;
+
+        Retired(long epoch, Runnable free) {
+            this.epoch = epoch;
+            this.free = free;
+        }
+    }
+
+    /**
+     * The state of one reader, padded so readers don't share a cache line.
+     */
+    public static final class Reader implements Closeable {
+        private static final FieldAccessor EPOCH = FieldAccessor.of(Reader.class, "epoch");
+
+        private final EpochReclaimer reclaimer;
+        long p0, p1, p2, p3, p4, p5, p6;
+        private volatile long epoch = 0;
+        long q0, q1, q2, q3, q4, q5, q6;
+        private int depth = 0;
+        private boolean closed = false;
+
+        Reader(EpochReclaimer reclaimer) {
+            this.reclaimer = reclaimer;
+        }
+
+        /**
+         * Enter a critical region, which can be nested.
+         *
+         * @throws IllegalStateException if closed, as the reclaimer no longer waits for this reader.
+         */
+        public void enter() throws IllegalStateException {
+            if (closed)
+                throw new IllegalStateException("Reader closed");
+            if (depth++ == 0)
+                // a volatile write as this must be visible before the reads which follow.
+                epoch = reclaimer.epoch;
+        }
+
+        public void exit() {
+            if (--depth == 0)
+                EPOCH.setOrderedLong(this, 0L);
+        }
+
+        public boolean inCriticalRegion() {
+            return depth > 0;
+        }
+
+        /**
+         * Deregister this reader. The reader() for this thread is registered again on its next use.
+         */
+        @Override
+        public void close() {
+            closed = true;
+            depth = 0;
+            epoch = 0;
+            reclaimer.deregister(this);
+        }
+    }
+}
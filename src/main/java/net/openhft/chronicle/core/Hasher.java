@@ -0,0 +1,161 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core;
+
+/**
+ * A reusable hasher for keys of several fields, which doesn't allocate.
+ * <p>
+ * <pre>
+ * long hash = hasher.reset().add(accountId).add(symbol).add(price).hash64();
+ * </pre>
+ * The same values added in the same order give the same hash. A byte[] and native memory with the
+ * same bytes hash the same, as do a String and a StringBuilder with the same text.
+ * <p>
+ * This class is not thread safe, use one per thread.
+ */
+public final class Hasher {
+    private static final Memory MEMORY = OS.memory();
+    private static final long BYTE_BASE = MEMORY.arrayBaseOffset(byte[].class);
+    private static final long CHAR_BASE = MEMORY.arrayBaseOffset(char[].class);
+
+    private long h0, h1;
+
+    public Hasher() {
+        reset();
+    }
+
+    public Hasher reset() {
+        h0 = Maths.K0;
+        h1 = ~Maths.K0;
+        return this;
+    }
+
+    private void mix(long w) {
+        h0 = Long.rotateLeft(h0 + w * Maths.M0, 31) * Maths.M1;
+        h1 = Long.rotateLeft(h1 ^ w * Maths.M2, 27) * Maths.M3;
+    }
+
+    public Hasher add(long l) {
+        mix(l);
+        return this;
+    }
+
+    public Hasher add(int i) {
+        mix(i);
+        return this;
+    }
+
+    /**
+     * Add a double. 0.0 and -0.0 are different values, all NaN values are the same.
+     */
+    public Hasher add(double d) {
+        mix(Double.doubleToLongBits(d));
+        return this;
+    }
+
+    public Hasher add(boolean b) {
+        mix(b ? 1 : 0);
+        return this;
+    }
+
+    /**
+     * Add text. null and an empty CharSequence are different values.
+     */
+    public Hasher add(CharSequence cs) {
+        if (cs == null) {
+            mix(-1L);
+            return this;
+        }
+        int length = cs.length();
+        char[] chars = Maths.extractChars(cs);
+        int i = 0;
+        if (chars == null) {
+            for (; i < length - 3; i += 4)
+                mix(cs.charAt(i)
+                        | (long) cs.charAt(i + 1) << 16
+                        | (long) cs.charAt(i + 2) << 32
+                        | (long) cs.charAt(i + 3) << 48);
+        } else {
+            for (; i < length - 3; i += 4)
+                mix(MEMORY.readLong(chars, CHAR_BASE + i * 2L));
+        }
+        long w = 0;
+        for (int j = length - 1; j >= i; j--)
+            w = (w << 16) | cs.charAt(j);
+        // the length separates one value from the next.
+        mix(w);
+        mix(length);
+        return this;
+    }
+
+    public Hasher add(byte[] bytes) {
+        return add(bytes, 0, bytes.length);
+    }
+
+    public Hasher add(byte[] bytes, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > bytes.length)
+            throw new ArrayIndexOutOfBoundsException("offset: " + offset + " length: " + length + " array: " + bytes.length);
+        addBytes(bytes, BYTE_BASE + offset, length);
+        return this;
+    }
+
+    /**
+     * Add a region of native memory.
+     *
+     * @param address of the first byte
+     * @param length  in bytes
+     * @return this
+     */
+    public Hasher addMemory(long address, long length) {
+        if (length < 0)
+            throw new IllegalArgumentException("length: " + length);
+        addBytes(null, address, length);
+        return this;
+    }
+
+    private void addBytes(Object base, long offset, long length) {
+        long i = 0;
+        for (; i < length - 7; i += 8)
+            mix(MEMORY.readLong(base, offset + i));
+        long w = 0;
+        for (long j = length - 1; j >= i; j--)
+            w = (w << 8) | (MEMORY.readByte(base, offset + j) & 0xFF);
+        mix(w);
+        mix(length);
+    }
+
+    /**
+     * @return a 64-bit hash of the values added since the last reset.
+     */
+    public long hash64() {
+        return Maths.finalise(h0 + Long.rotateLeft(h1, 32));
+    }
+
+    /**
+     * @return the lower 64 bits of a 128-bit hash of the values added since the last reset.
+     */
+    public long hash128Low() {
+        return Maths.finalise(h0 + h1);
+    }
+
+    /**
+     * @return the upper 64 bits of a 128-bit hash of the values added since the last reset.
+     */
+    public long hash128High() {
+        return Maths.finalise(h1 + 2 * h0);
+    }
+}
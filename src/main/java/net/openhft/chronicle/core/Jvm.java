@@ -27,8 +27,6 @@ import static java.lang.management.ManagementFactory.getRuntimeMXBean;
 public enum Jvm {
     ;
 
-    public static final boolean IS_DEBUG = getRuntimeMXBean().getInputArguments().toString().contains("jdwp") || Boolean.getBoolean("debug");
-
     /**
      * Cast a CheckedException as an unchecked one.
      *
@@ -53,7 +51,7 @@ public enum Jvm {
             sb.append("\n\tat ").append(stes[i]);
     }
 
-    static int trimFirst(StackTraceElement[] stes) {
+    public static int trimFirst(StackTraceElement[] stes) {
         int first = 0;
         for (; first < stes.length; first++)
             if (!isInternal(stes[first].getClassName()))
@@ -77,9 +75,8 @@ public enum Jvm {
     /**
      * @return is the JVM in debug mode.
      */
-    @SuppressWarnings("SameReturnValue")
     public static boolean isDebug() {
-        return IS_DEBUG;
+        return DebugHolder.IS_DEBUG;
     }
 
     /**
@@ -114,4 +111,12 @@ public enum Jvm {
             throw new AssertionError(e);
         }
     }
+
+    /**
+     * Checking the JVM arguments loads JMX, so this is only done if needed.
+     */
+    private static final class DebugHolder {
+        static final boolean IS_DEBUG = Boolean.getBoolean("debug")
+                || getRuntimeMXBean().getInputArguments().toString().contains("jdwp");
+    }
 }
@@ -16,17 +16,23 @@
 
 package net.openhft.chronicle.core;
 
+import net.openhft.chronicle.core.util.StringUtils;
+
+import java.nio.ByteOrder;
+
 public enum Maths {
     ;
     /**
      * Numbers larger than this are whole numbers due to representation error.
      */
     private static final double WHOLE_NUMBER = 1L << 53;
-    private static final int K0 = 0x6d0f27bd;
-    private static final int M0 = 0x5bc80bad;
-    private static final int M1 = 0xea7585d7;
-    private static final int M2 = 0x7a646e19;
-    private static final int M3 = 0x855dd4db;
+    static final int K0 = 0x6d0f27bd;
+    static final int M0 = 0x5bc80bad;
+    static final int M1 = 0xea7585d7;
+    static final int M2 = 0x7a646e19;
+    static final int M3 = 0x855dd4db;
+    // whether a String or StringBuilder holds its text in a char[] which can be read as little endian longs.
+    private static final boolean CHAR_ARRAYS = charArrays();
 
     /**
      * Performs a round which is accurate to within 1 ulp. i.e. for values very close to 0.5
@@ -111,11 +117,92 @@ public enum Maths {
         return (int) (h ^ (h >> 32));
     }
 
+    /**
+     * Hash the text of a CharSequence. A String and a StringBuilder with the same text have the same hash.
+     * <p>
+     * A String or StringBuilder is hashed four chars at a time from its char[] where the JVM has one.
+     *
+     * @param cs to hash
+     * @return hash value.
+     */
     public static long longHash(CharSequence cs) {
-        long hash = 0;
-        for (int i = 0; i < cs.length(); i++)
-            hash = Long.rotateLeft(hash, 7) + cs.charAt(i);
-        return longHash(hash);
+        char[] chars = extractChars(cs);
+        return chars == null ? longHash0(cs) : longHash(chars, cs.length());
+    }
+
+    /**
+     * @param cs text
+     * @return the char[] backing a String or StringBuilder, or null if there isn't one to read.
+     */
+    static char[] extractChars(CharSequence cs) {
+        if (CHAR_ARRAYS) {
+            if (cs instanceof String)
+                return StringUtils.extractChars((String) cs);
+            if (cs instanceof StringBuilder)
+                return StringUtils.extractChars((StringBuilder) cs);
+        }
+        return null;
+    }
+
+    private static boolean charArrays() {
+        if (ByteOrder.nativeOrder() != ByteOrder.LITTLE_ENDIAN)
+            return false;
+        try {
+            return String.class.getDeclaredField("value").getType() == char[].class;
+        } catch (NoSuchFieldException e) {
+            return false;
+        }
+    }
+
+    static long longHash(char[] chars, int length) {
+        // not a constant, as OS uses Maths.
+        Memory memory = OS.memory();
+        long charBase = memory.arrayBaseOffset(char[].class);
+        long h = length * (long) K0;
+        int i = 0;
+        for (; i < length - 3; i += 4)
+            h = mix(h, memory.readLong(chars, charBase + i * 2L));
+        if (i < length) {
+            long w = 0;
+            for (int j = length - 1; j >= i; j--)
+                w = (w << 16) | chars[j];
+            h = mixTail(h, w);
+        }
+        return finalise(h);
+    }
+
+    private static long longHash0(CharSequence cs) {
+        int length = cs.length();
+        long h = length * (long) K0;
+        int i = 0;
+        for (; i < length - 3; i += 4)
+            h = mix(h, cs.charAt(i)
+                    | (long) cs.charAt(i + 1) << 16
+                    | (long) cs.charAt(i + 2) << 32
+                    | (long) cs.charAt(i + 3) << 48);
+        if (i < length) {
+            long w = 0;
+            for (int j = length - 1; j >= i; j--)
+                w = (w << 16) | cs.charAt(j);
+            h = mixTail(h, w);
+        }
+        return finalise(h);
+    }
+
+    private static long mix(long h, long w) {
+        return Long.rotateLeft(h + w * M0, 31) * M1;
+    }
+
+    private static long mixTail(long h, long w) {
+        return Long.rotateLeft(h + w * M2, 31) * M3;
+    }
+
+    static long finalise(long h) {
+        h ^= h >>> 33;
+        h *= M0;
+        h ^= h >>> 29;
+        h *= M1;
+        return h ^ (h >>> 32);
     }
 
     public static int intLog2(long num) {
@@ -16,6 +16,8 @@
 
 package net.openhft.chronicle.core;
 
+import java.lang.reflect.Field;
+
 /**
  * Low level memory access
  */
@@ -97,6 +99,8 @@ public interface Memory {
 
     void copyMemory(long fromAddress, Object obj2, long offset2, int length);
 
+    void copyMemory(Object obj, long offset, long address, int length);
+
     void writeOrderedLong(long address, long i);
 
     void writeOrderedLong(Object object, long offset, long i);
@@ -109,11 +113,53 @@ public interface Memory {
 
     boolean compareAndSwapLong(Object underlyingObject, long offset, long expected, long value);
 
+    /**
+     * Atomically add to an int in a single instruction where supported.
+     *
+     * @return the new value
+     */
+    int addInt(long address, int increment);
+
+    int addInt(Object object, long offset, int increment);
+
+    /**
+     * Atomically add to a long in a single instruction where supported.
+     *
+     * @return the new value
+     */
+    long addLong(long address, long increment);
+
+    long addLong(Object object, long offset, long increment);
+
     int pageSize();
 
     int readVolatileInt(long address);
 
     long readVolatileLong(long address);
 
+    int readVolatileInt(Object object, long offset);
+
+    long readVolatileLong(Object object, long offset);
+
     <E> E allocateInstance(Class<E> clazz);
+
+    /**
+     * @param arrayClass the class of an array e.g. int[].class
+     * @return the offset of the first element of an array of this type.
+     */
+    int arrayBaseOffset(Class<?> arrayClass);
+
+    /**
+     * @param field an instance field
+     * @return the offset of the field in an object, for use with readLong(Object, long) etc.
+     */
+    long getFieldOffset(Field field);
+
+    <T> T getObject(Object object, long offset);
+
+    void setObject(Object object, long offset, Object obj);
+
+    <T> T getVolatileObject(Object object, long offset);
+
+    void setOrderedObject(Object object, long offset, Object obj);
 }
@@ -0,0 +1,199 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.channels.FileChannel;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The owner of a block of native memory or a memory mapping. The memory is freed when the last reference is
+ * released, or if the owner is dropped without being released, by a background thread once it has been
+ * collected. This uses a PhantomReference rather than a finalizer, and releasing explicitly deregisters it so
+ * the memory is only freed once.
+ */
+public final class NativeOwner implements ReferenceCounted {
+    private static final Logger LOG = LoggerFactory.getLogger(NativeOwner.class);
+    private static final Memory MEMORY = OS.memory();
+
+    private final long address;
+    private final long size;
+    private final ReferenceCounter refCount;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private NativeOwner(long address, long size, boolean mapped) {
+        this.address = address;
+        this.size = size;
+        Releaser releaser = new Releaser(this, address, size, mapped);
+        this.refCount = ReferenceCounter.onReleased(releaser::release);
+    }
+
+    /**
+     * Allocate a block of native memory, not zeroed.
+     *
+     * @param size in bytes
+     * @return the owner of the block
+     */
+    public static NativeOwner allocate(long size) {
+        return new NativeOwner(MEMORY.allocate(size), size, false);
+    }
+
+    /**
+     * Allocate a block of native memory set to zero.
+     *
+     * @param size in bytes
+     * @return the owner of the block
+     */
+    public static NativeOwner allocateZeroed(long size) {
+        NativeOwner owner = allocate(size);
+        MEMORY.setMemory(owner.address, size, (byte) 0);
+        return owner;
+    }
+
+    /**
+     * Map a region of a file.
+     *
+     * @param fileChannel to map
+     * @param mode        of access
+     * @param start       offset within the file
+     * @param size        of the region
+     * @return the owner of the mapping
+     * @throws IOException if the mapping fails
+     */
+    public static NativeOwner map(FileChannel fileChannel, FileChannel.MapMode mode, long start, long size) throws IOException {
+        return new NativeOwner(OS.map(fileChannel, mode, start, size), size, true);
+    }
+
+    /**
+     * @return the number of owners which were freed after being dropped without being released.
+     */
+    public static long releasedByCollector() {
+        return Releaser.COLLECTED.get();
+    }
+
+    public long address() {
+        return address;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public void reserve() throws IllegalStateException {
+        refCount.reserve();
+    }
+
+    @Override
+    public boolean tryReserve() {
+        return refCount.tryReserve();
+    }
+
+    @Override
+    public void release() throws IllegalStateException {
+        refCount.release();
+    }
+
+    @Override
+    public long refCount() {
+        return refCount.get();
+    }
+
+    /**
+     * Release the reference taken by allocate() or map(). Unlike release(), calling this again does nothing.
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true))
+            release();
+    }
+
+    @Override
+    public String toString() {
+        return "NativeOwner{address=" + Long.toHexString(address) + ", size=" + size + ", refCount=" + refCount + '}';
+    }
+
+    /**
+     * Frees the memory, either on the last release or after the owner has been collected. It must not refer to
+     * the owner.
+     */
+    static final class Releaser extends PhantomReference<NativeOwner> {
+        static final ReferenceQueue<NativeOwner> QUEUE = new ReferenceQueue<>();
+        // keeps the releasers reachable until they are run.
+        static final Set<Releaser> RELEASERS = ConcurrentHashMap.newKeySet();
+        static final AtomicLong COLLECTED = new AtomicLong();
+
+        static {
+            Thread thread = new Thread(Releaser::releaseCollected, "native-releaser");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private final long address;
+        private final long size;
+        private final boolean mapped;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Releaser(NativeOwner owner, long address, long size, boolean mapped) {
+            super(owner, QUEUE);
+            this.address = address;
+            this.size = size;
+            this.mapped = mapped;
+            RELEASERS.add(this);
+        }
+
+        private static void releaseCollected() {
+            try {
+                for (; ; ) {
+                    Releaser releaser = (Releaser) QUEUE.remove();
+                    if (!releaser.released.get()) {
+                        LOG.warn("Freeing {} bytes of {} memory which were not released", releaser.size,
+                                releaser.mapped ? "mapped" : "native");
+                        COLLECTED.incrementAndGet();
+                        releaser.release();
+                    }
+                }
+            } catch (InterruptedException e) {
+                LOG.warn("Native releaser interrupted", e);
+            }
+        }
+
+        void release() {
+            if (!released.compareAndSet(false, true))
+                return;
+            RELEASERS.remove(this);
+            clear();
+            if (mapped) {
+                try {
+                    OS.unmap(address, size);
+                } catch (IOException e) {
+                    LOG.error("", e);
+                }
+            } else {
+                MEMORY.freeMemory(address, size);
+            }
+        }
+    }
+}
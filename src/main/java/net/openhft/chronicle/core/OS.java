@@ -35,7 +35,6 @@ import static java.lang.management.ManagementFactory.getRuntimeMXBean;
  * Low level axcess to OS class.
  */
 public class OS {
-    private static final String HOST_NAME = getHostName0();
     private static final String USER_NAME = System.getProperty("user.name");
     private static final String TMP = System.getProperty("java.io.tmpdir");
     public static final String TARGET = System.getProperty("project.build.directory", TMP + "/target");
@@ -44,7 +43,6 @@ public class OS {
     private static final int MAP_RW = 1;
     private static final int MAP_PV = 2;
     private static final boolean IS64BIT = is64Bit0();
-    private static final int PROCESS_ID = getProcessId0();
     private static final Memory MEMORY = getMemory();
     private static final String OS = System.getProperty("os.name").toLowerCase();
     private static final boolean IS_LINUX = OS.startsWith("linux");
@@ -52,8 +50,11 @@ public class OS {
     private static final boolean IS_WIN = OS.startsWith("win");
     private static final int MAP_ALIGNMENT = isWindows() ? 64 << 10 : pageSize();
 
+    /**
+     * @return the host name, looked up on first use as this can block on DNS.
+     */
     public static String getHostName() {
-        return HOST_NAME;
+        return HostNameHolder.HOST_NAME;
     }
 
     public static String getUserName() {
@@ -137,7 +138,7 @@ public class OS {
     }
 
     public static int getProcessId() {
-        return PROCESS_ID;
+        return ProcessIdHolder.PROCESS_ID;
     }
 
     private static int getProcessId0() {
@@ -149,6 +150,7 @@ public class OS {
         } catch (IOException ignored) {
             // ignored
         }
+        // only load JMX if there is no /proc
         if (pid == null)
             pid = getRuntimeMXBean().getName().split("@", 0)[0];
         if (pid == null) {
@@ -205,6 +207,29 @@ public class OS {
         return 1L << 16;
     }
 
+    /**
+     * Check whether a process is running, e.g. the owner of a lock in shared memory.
+     *
+     * @param pid of the process
+     * @return false if the process is known to be dead, otherwise true.
+     */
+    public static boolean isProcessAlive(long pid) {
+        if (isLinux())
+            return new File("/proc/" + pid).exists();
+        if (isWindows())
+            return true;
+        try {
+            // unlike kill -0 this succeeds for another user's process.
+            Process process = new ProcessBuilder("ps", "-p", Long.toString(pid)).start();
+            return process.waitFor() == 0;
+        } catch (IOException e) {
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return true;
+        }
+    }
+
     /**
      * Map a region of a file into memory.
      * @param fileChannel to map
@@ -330,4 +355,12 @@ public class OS {
             }
         }
     }
+
+    private static final class HostNameHolder {
+        static final String HOST_NAME = getHostName0();
+    }
+
+    private static final class ProcessIdHolder {
+        static final int PROCESS_ID = getProcessId0();
+    }
 }
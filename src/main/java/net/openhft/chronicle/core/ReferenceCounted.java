@@ -53,6 +53,12 @@ public interface ReferenceCounted extends Closeable {
 
     long refCount();
 
+    /**
+     * Reserve unless already released. This default relies on catching the exception reserve() throws, so
+     * implementations using a ReferenceCounter should override it with ReferenceCounter.tryReserve()
+     *
+     * @return true if reserved.
+     */
     default boolean tryReserve() {
         try {
             if (refCount() > 0) {
@@ -17,52 +17,180 @@
 package net.openhft.chronicle.core;
 
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 public class ReferenceCounter {
+    // longs per stripe so each stripe has its own cache line.
+    private static final int STRIDE = 8;
+    public static final int DEFAULT_STRIPES = Maths.nextPower2(Runtime.getRuntime().availableProcessors(), 2);
+
     private final AtomicLong value = new AtomicLong(1);
     private final Runnable onRelease;
+    // null unless striped.
+    private final AtomicLongArray stripes;
+    private final int mask;
+    // null unless sampled by the ReferenceTracer.
+    private final ReferenceTracer.Trace trace;
 
-    private ReferenceCounter(Runnable onRelease) {
+    private ReferenceCounter(Runnable onRelease, int stripes) {
         this.onRelease = onRelease;
+        this.stripes = stripes == 0 ? null : new AtomicLongArray((stripes + 1) * STRIDE);
+        this.mask = stripes - 1;
+        this.trace = ReferenceTracer.traceFor(this);
     }
 
     public static ReferenceCounter onReleased(Runnable onRelease) {
-        return new ReferenceCounter(onRelease);
+        return new ReferenceCounter(onRelease, 0);
+    }
+
+    /**
+     * A counter for resources reserved by many threads at once. Each thread adds to its own stripe, so
+     * reserve() and release() don't contend, until the reference held by the creator is released with
+     * releaseOwner(), or with release() when no other reference is held, e.g. by close(). After that no
+     * more references can be reserved and onRelease is run once the last is released.
+     *
+     * @param onRelease to run when all the references are released
+     * @param stripes   a power of 2, e.g. DEFAULT_STRIPES
+     * @return the counter
+     */
+    public static ReferenceCounter onReleasedStriped(Runnable onRelease, int stripes) {
+        if (stripes < 1 || Integer.bitCount(stripes) != 1)
+            throw new IllegalArgumentException("stripes must be a power of 2: " + stripes);
+        return new ReferenceCounter(onRelease, stripes);
     }
 
     public void reserve() {
+        if (!tryReserve())
+            throw new IllegalStateException("Released");
+    }
+
+    /**
+     * @return true if reserved, or false if already released.
+     */
+    public boolean tryReserve() {
+        boolean reserved = tryReserve0();
+        if (trace != null && reserved)
+            trace.record("reserve");
+        return reserved;
+    }
+
+    private boolean tryReserve0() {
+        if (stripes != null)
+            return tryReserveStriped();
         for (; ; ) {
             long v = value.get();
             if (v <= 0)
-                throw new IllegalStateException("Released");
+                return false;
             if (value.compareAndSet(v, v + 1))
-                break;
+                return true;
         }
     }
 
     public void release() {
+        if (trace != null)
+            trace.record("release");
+        if (stripes != null) {
+            releaseStriped();
+            return;
+        }
         for (; ; ) {
             long v = value.get();
             if (v <= 0)
                 throw new IllegalStateException("Released");
             if (value.compareAndSet(v, v - 1)) {
                 if (v == 1)
-                    onRelease.run();
+                    onReleased();
                 break;
             }
         }
     }
 
+    /**
+     * Release the reference held since creation. For a counter which isn't striped this is the same as release()
+     */
+    public void releaseOwner() {
+        if (stripes == null) {
+            release();
+            return;
+        }
+        if (trace != null)
+            trace.record("releaseOwner");
+        releaseOwnerStriped();
+    }
+
+    private void releaseOwnerStriped() {
+        if (!value.compareAndSet(1, 0))
+            throw new IllegalStateException("Released");
+        releaseIfUnreserved();
+    }
+
+    private boolean tryReserveStriped() {
+        int index = index();
+        stripes.getAndIncrement(index);
+        if (value.get() > 0)
+            return true;
+        // the owner has released it, back out.
+        stripes.getAndDecrement(index);
+        releaseIfUnreserved();
+        return false;
+    }
+
+    private void releaseStriped() {
+        long v = value.get();
+        if (v < 0)
+            throw new IllegalStateException("Released");
+        // no reference has been reserved, so this must be the owner's.
+        if (v > 0 && sum() <= 0) {
+            releaseOwnerStriped();
+            return;
+        }
+        stripes.getAndDecrement(index());
+        if (value.get() == 0)
+            releaseIfUnreserved();
+    }
+
+    private void releaseIfUnreserved() {
+        // once the owner has released, stripes can only go down, apart from reservations which back out,
+        // so a sum of zero means there are none left.
+        if (sum() == 0 && value.compareAndSet(0, -1))
+            onReleased();
+    }
+
+    private void onReleased() {
+        if (trace != null)
+            trace.released();
+        onRelease.run();
+    }
+
+    private int index() {
+        long h = Maths.agitate(Thread.currentThread().getId());
+        return ((int) (h ^ (h >>> 32)) & mask) * STRIDE + STRIDE;
+    }
+
+    private long sum() {
+        long sum = 0;
+        for (int i = STRIDE; i < stripes.length(); i += STRIDE)
+            sum += stripes.get(i);
+        return sum;
+    }
+
     public long get() {
-        return value.get();
+        if (stripes == null)
+            return value.get();
+        long v = value.get();
+        return v < 0 ? 0 : v + sum();
     }
 
     public String toString() {
-        return Long.toString(value.get());
+        return Long.toString(get());
     }
 
     public void releaseAll() {
-        if (value.get() > 0)
-            onRelease.run();
+        if (stripes == null) {
+            if (value.get() > 0)
+                onReleased();
+        } else if (value.getAndSet(-1) >= 0) {
+            onReleased();
+        }
     }
 }
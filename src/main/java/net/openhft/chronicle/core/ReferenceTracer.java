@@ -0,0 +1,173 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Sampled tracing of ReferenceCounters to find leaks, e.g. mapped chunks which are never released.
+ * <p>
+ * One in every N counters created records the stack of its creation and of its last reserves and releases.
+ * If a traced counter becomes unreachable without being released, its history is reported to the leak
+ * listener by a background thread. Counters which aren't traced have no history and no PhantomReference.
+ * N is set with -Dchronicle.reference.trace=N or sampleOneIn(N), and 0 turns tracing off.
+ */
+public enum ReferenceTracer {
+    ;
+    static final int MAX_EVENTS = 32;
+    private static final Logger LOG = LoggerFactory.getLogger(ReferenceTracer.class);
+    private static final ReferenceQueue<ReferenceCounter> QUEUE = new ReferenceQueue<>();
+    // keeps the traces reachable until they are released or enqueued.
+    private static final Set<Trace> TRACES = ConcurrentHashMap.newKeySet();
+    private static final AtomicLong CREATED = new AtomicLong();
+    private static final AtomicLong LEAKS = new AtomicLong();
+    private static volatile int sampleOneIn = Integer.getInteger("chronicle.reference.trace", 0);
+    private static volatile Consumer<String> leakListener = LOG::warn;
+    private static Thread checker;
+
+    /**
+     * @param oneIn trace one in this many counters created, 1 for all of them or 0 for none.
+     */
+    public static void sampleOneIn(int oneIn) {
+        if (oneIn < 0)
+            throw new IllegalArgumentException("oneIn: " + oneIn);
+        sampleOneIn = oneIn;
+    }
+
+    public static int sampleOneIn() {
+        return sampleOneIn;
+    }
+
+    /**
+     * @param listener to pass the report of each leak to, by default a warning is logged.
+     */
+    public static void leakListener(Consumer<String> listener) {
+        leakListener = listener;
+    }
+
+    /**
+     * @return the number of leaks reported so far.
+     */
+    public static long leaks() {
+        return LEAKS.get();
+    }
+
+    static Trace traceFor(ReferenceCounter counter) {
+        int oneIn = sampleOneIn;
+        if (oneIn == 0 || CREATED.getAndIncrement() % oneIn != 0)
+            return null;
+        startChecker();
+        Trace trace = new Trace(counter);
+        TRACES.add(trace);
+        return trace;
+    }
+
+    private static synchronized void startChecker() {
+        if (checker != null)
+            return;
+        checker = new Thread(ReferenceTracer::checkLeaks, "reference-tracer");
+        checker.setDaemon(true);
+        checker.start();
+    }
+
+    private static void checkLeaks() {
+        try {
+            for (; ; ) {
+                Reference<? extends ReferenceCounter> ref = QUEUE.remove();
+                Trace trace = (Trace) ref;
+                if (TRACES.remove(trace) && !trace.released) {
+                    LEAKS.incrementAndGet();
+                    // the thread isn't restarted, so a failing listener mustn't stop it.
+                    try {
+                        leakListener.accept(trace.report());
+                    } catch (Throwable t) {
+                        LOG.error("Unable to report a leak", t);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            LOG.warn("Reference tracer interrupted", e);
+        }
+    }
+
+    /**
+     * The history of one counter. This doesn't refer to the counter so it can be enqueued once the counter
+     * is unreachable.
+     */
+    static final class Trace extends PhantomReference<ReferenceCounter> {
+        private final Throwable created = new Throwable("created");
+        private final ArrayDeque<Throwable> events = new ArrayDeque<>();
+        private long dropped = 0;
+        volatile boolean released = false;
+
+        Trace(ReferenceCounter counter) {
+            super(counter, QUEUE);
+        }
+
+        synchronized void record(String event) {
+            if (events.size() >= MAX_EVENTS) {
+                events.poll();
+                dropped++;
+            }
+            events.add(new Throwable(event));
+        }
+
+        void released() {
+            record("released");
+            released = true;
+            TRACES.remove(this);
+            clear();
+        }
+
+        synchronized String report() {
+            StringBuilder sb = new StringBuilder("ReferenceCounter was not released");
+            append(sb, created);
+            if (dropped > 0)
+                sb.append("\n").append(dropped).append(" earlier events dropped");
+            for (Throwable event : events)
+                append(sb, event);
+            return sb.toString();
+        }
+
+        private static void append(StringBuilder sb, Throwable event) {
+            sb.append('\n').append(event.getMessage()).append(" at");
+            StackTraceElement[] stes = event.getStackTrace();
+            // skip the tracer and counter frames.
+            int first = 0;
+            while (first < stes.length - 1 && isTracing(stes[first].getClassName()))
+                first++;
+            Jvm.trimStackTrace(sb, Arrays.copyOfRange(stes, first, stes.length));
+        }
+
+        private static boolean isTracing(String className) {
+            return className.equals(ReferenceCounter.class.getName())
+                    || className.equals(ReferenceTracer.class.getName())
+                    || className.equals(Trace.class.getName());
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.tools.*;
+import java.io.*;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Compiles Java source in memory and defines the classes with ClassLoading. The byte code is cached on disk
+ * in a directory named by a hash of the source, so a later run with the same source skips the compiler.
+ * <p>
+ * This needs a JDK, as javax.tools has no compiler in a JRE.
+ */
+public class SourceCompiler {
+    public static final String CACHE_DIR = System.getProperty("chronicle.compiler.cache", OS.TARGET + "/compiled");
+    private static final Logger LOG = LoggerFactory.getLogger(SourceCompiler.class);
+    private static final String CLASS_EXT = ".class";
+
+    private final File cacheDir;
+    private int compilations = 0;
+
+    /**
+     * @param cacheDir to cache byte code in, or null for no disk cache
+     */
+    public SourceCompiler(File cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    public static SourceCompiler getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Compile the source, or read the byte code cached, and define the classes into the context class loader.
+     *
+     * @param className of the top level class
+     * @param source    of the class
+     * @return the class loaded.
+     * @throws ClassNotFoundException if the source doesn't compile, with the errors as the message
+     */
+    public Class<?> loadFromJava(String className, String source) throws ClassNotFoundException {
+        return loadFromJava(Thread.currentThread().getContextClassLoader(), className, source);
+    }
+
+    /**
+     * Compile the source, or read the byte code cached, and define the classes into a class loader. If the
+     * class loader can already load the class, e.g. it was loaded before, that class is returned.
+     *
+     * @param classLoader to define the classes in
+     * @param className   of the top level class
+     * @param source      of the class
+     * @return the class loaded.
+     * @throws ClassNotFoundException if the source doesn't compile, with the errors as the message
+     */
+    public synchronized Class<?> loadFromJava(ClassLoader classLoader, String className, String source) throws ClassNotFoundException {
+        Class<?> clazz = loadedClass(classLoader, className);
+        if (clazz != null)
+            return clazz;
+
+        File dir = cacheDir == null ? null : new File(cacheDir, keyFor(className, source));
+        Map<String, byte[]> byteCode = dir == null ? null : readCache(dir);
+        if (byteCode == null || !byteCode.containsKey(className)) {
+            byteCode = compile(className, source);
+            if (dir != null)
+                writeCache(dir, byteCode);
+        }
+        // the outer class first, nested classes are only resolved when used.
+        clazz = define(classLoader, className, byteCode.get(className));
+        for (Map.Entry<String, byte[]> entry : byteCode.entrySet()) {
+            if (!entry.getKey().equals(className))
+                define(classLoader, entry.getKey(), entry.getValue());
+        }
+        return clazz;
+    }
+
+    private static Class<?> loadedClass(ClassLoader classLoader, String className) {
+        try {
+            return Class.forName(className, false, classLoader);
+        } catch (ClassNotFoundException expected) {
+            return null;
+        }
+    }
+
+    private static Class<?> define(ClassLoader classLoader, String className, byte[] bytes) {
+        try {
+            return ClassLoading.defineClass(classLoader, className, bytes);
+        } catch (LinkageError e) {
+            // already defined, e.g. by another SourceCompiler
+            Class<?> clazz = loadedClass(classLoader, className);
+            if (clazz == null)
+                throw e;
+            return clazz;
+        }
+    }
+
+    /**
+     * @return the number of times the compiler has been run rather than the cache used.
+     */
+    public synchronized int compilations() {
+        return compilations;
+    }
+
+    static String keyFor(String className, String source) {
+        long hash = new Hasher()
+                .add(className)
+                .add(source)
+                .add(System.getProperty("java.specification.version"))
+                .hash64();
+        return className + "-" + Long.toHexString(hash);
+    }
+
+    Map<String, byte[]> compile(String className, String source) throws ClassNotFoundException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null)
+            throw new IllegalStateException("No Java compiler available, run on a JDK");
+        compilations++;
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        Map<String, ByteArrayOutputStream> outputs = new LinkedHashMap<>();
+        JavaFileManager fileManager = new ForwardingJavaFileManager<JavaFileManager>(
+                compiler.getStandardFileManager(diagnostics, null, null)) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String name, JavaFileObject.Kind kind, FileObject sibling) {
+                return new SimpleJavaFileObject(URI.create("mem:///" + name.replace('.', '/') + kind.extension), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        ByteArrayOutputStream out = new ByteArrayOutputStream();
+                        outputs.put(name, out);
+                        return out;
+                    }
+                };
+            }
+        };
+        JavaFileObject sourceFile = new SimpleJavaFileObject(
+                URI.create("string:///" + className.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        List<String> options = Arrays.asList("-classpath", System.getProperty("java.class.path"));
+        Boolean ok = compiler.getTask(null, fileManager, diagnostics, options, null, Collections.singletonList(sourceFile)).call();
+        if (!ok || !outputs.containsKey(className)) {
+            StringBuilder sb = new StringBuilder("Unable to compile ").append(className);
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics())
+                sb.append('\n').append(diagnostic.getLineNumber()).append(": ").append(diagnostic.getMessage(null));
+            throw new ClassNotFoundException(sb.toString());
+        }
+        Map<String, byte[]> byteCode = new LinkedHashMap<>();
+        for (Map.Entry<String, ByteArrayOutputStream> entry : outputs.entrySet())
+            byteCode.put(entry.getKey(), entry.getValue().toByteArray());
+        return byteCode;
+    }
+
+    private static Map<String, byte[]> readCache(File dir) {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(CLASS_EXT));
+        if (files == null || files.length == 0)
+            return null;
+        Map<String, byte[]> byteCode = new LinkedHashMap<>();
+        try {
+            for (File file : files) {
+                String name = file.getName();
+                byteCode.put(name.substring(0, name.length() - CLASS_EXT.length()), Files.readAllBytes(file.toPath()));
+            }
+        } catch (IOException e) {
+            LOG.warn("Unable to read cached classes from " + dir, e);
+            return null;
+        }
+        return byteCode;
+    }
+
+    private static void writeCache(File dir, Map<String, byte[]> byteCode) {
+        // write to a temporary directory and rename it, so another process never sees some of the classes.
+        File tmp = new File(dir.getParentFile(), dir.getName() + "." + OS.getProcessId() + ".tmp");
+        try {
+            Files.createDirectories(tmp.toPath());
+            for (Map.Entry<String, byte[]> entry : byteCode.entrySet())
+                Files.write(new File(tmp, entry.getKey() + CLASS_EXT).toPath(), entry.getValue());
+            Files.move(tmp.toPath(), dir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // e.g. another process cached it first.
+            LOG.debug("Unable to cache classes in " + dir, e);
+            File[] files = tmp.listFiles();
+            if (files != null)
+                for (File file : files)
+                    file.delete();
+            tmp.delete();
+        }
+    }
+
+    private static final class Holder {
+        static final SourceCompiler INSTANCE = new SourceCompiler(new File(CACHE_DIR));
+    }
+}
@@ -271,6 +271,12 @@ public class UnsafeMemory implements Memory {
         UNSAFE.copyMemory(null, fromAddress, obj2, offset2, length);
     }
 
+    @Override
+    @ForceInline
+    public void copyMemory(Object obj, long offset, long address, int length) {
+        UNSAFE.copyMemory(obj, offset, null, address, length);
+    }
+
     @Override
     @ForceInline
     public void writeOrderedLong(long address, long i) {
@@ -307,6 +313,30 @@ public class UnsafeMemory implements Memory {
         return UNSAFE.compareAndSwapLong(underlyingObject, offset, expected, value);
     }
 
+    @Override
+    @ForceInline
+    public int addInt(long address, int increment) {
+        return UNSAFE.getAndAddInt(null, address, increment) + increment;
+    }
+
+    @Override
+    @ForceInline
+    public int addInt(Object object, long offset, int increment) {
+        return UNSAFE.getAndAddInt(object, offset, increment) + increment;
+    }
+
+    @Override
+    @ForceInline
+    public long addLong(long address, long increment) {
+        return UNSAFE.getAndAddLong(null, address, increment) + increment;
+    }
+
+    @Override
+    @ForceInline
+    public long addLong(Object object, long offset, long increment) {
+        return UNSAFE.getAndAddLong(object, offset, increment) + increment;
+    }
+
     @Override
     public int pageSize() {
         return UNSAFE.pageSize();
@@ -323,4 +353,48 @@ public class UnsafeMemory implements Memory {
     public long readVolatileLong(long address) {
         return UNSAFE.getLongVolatile(null, address);
     }
+
+    @Override
+    @ForceInline
+    public int readVolatileInt(Object object, long offset) {
+        return UNSAFE.getIntVolatile(object, offset);
+    }
+
+    @Override
+    @ForceInline
+    public long readVolatileLong(Object object, long offset) {
+        return UNSAFE.getLongVolatile(object, offset);
+    }
+
+    @Override
+    public int arrayBaseOffset(Class<?> arrayClass) {
+        return UNSAFE.arrayBaseOffset(arrayClass);
+    }
+
+    @Override
+    public long getFieldOffset(Field field) {
+        return UNSAFE.objectFieldOffset(field);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getObject(Object object, long offset) {
+        return (T) UNSAFE.getObject(object, offset);
+    }
+
+    @Override
+    public void setObject(Object object, long offset, Object obj) {
+        UNSAFE.putObject(object, offset, obj);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getVolatileObject(Object object, long offset) {
+        return (T) UNSAFE.getObjectVolatile(object, offset);
+    }
+
+    @Override
+    public void setOrderedObject(Object object, long offset, Object obj) {
+        UNSAFE.putOrderedObject(object, offset, obj);
+    }
 }
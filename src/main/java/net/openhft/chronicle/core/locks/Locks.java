@@ -0,0 +1,82 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.locks;
+
+import net.openhft.chronicle.core.OS;
+
+/**
+ * Encoding of the owner of a lock held in shared memory, so a lock held by a process which has
+ * died can be detected and broken.
+ * <p>
+ * An owner is the process id in the low bits, sized with OS.getPidMax(), and the thread id
+ * above it. An owner is never 0, and fits in 62 bits.
+ */
+public enum Locks {
+    ;
+
+    static final int PID_BITS = 64 - Long.numberOfLeadingZeros(OS.getPidMax() - 1);
+    static final long PID_MASK = (1L << PID_BITS) - 1;
+    static final long OWNER_MASK = (1L << 62) - 1;
+    // how often to check whether the owner of a lock is still alive.
+    static final int CHECK_OWNER_SPINS = 1 << 20;
+    private static final int YIELD_SPINS = 1 << 10;
+
+    /**
+     * @return the owner id for the current thread
+     */
+    public static long currentOwner() {
+        return ((Thread.currentThread().getId() << PID_BITS) | OS.getProcessId()) & OWNER_MASK;
+    }
+
+    /**
+     * @param owner id
+     * @return the process id of the owner.
+     */
+    public static int pidOf(long owner) {
+        return (int) (owner & PID_MASK);
+    }
+
+    /**
+     * @param owner id
+     * @return true if the owning process is known to have died.
+     */
+    public static boolean isOwnerDead(long owner) {
+        int pid = pidOf(owner);
+        return pid != 0 && pid != OS.getProcessId() && !OS.isProcessAlive(pid);
+    }
+
+    /**
+     * Busy wait, giving up the CPU now and then in case the lock holder doesn't have one.
+     *
+     * @param spins so far
+     * @return spins + 1
+     */
+    static int backOff(int spins) {
+        if ((spins & (YIELD_SPINS - 1)) == YIELD_SPINS - 1)
+            Thread.yield();
+        return spins + 1;
+    }
+
+    static boolean checkOwner(int spins) {
+        return (spins & (CHECK_OWNER_SPINS - 1)) == CHECK_OWNER_SPINS - 1;
+    }
+
+    static void checkAligned(long address) {
+        if ((address & 7) != 0)
+            throw new IllegalArgumentException("address must be 8 byte aligned: " + Long.toHexString(address));
+    }
+}
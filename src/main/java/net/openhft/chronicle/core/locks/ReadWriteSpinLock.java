@@ -0,0 +1,133 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.locks;
+
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.OS;
+
+import static net.openhft.chronicle.core.locks.Locks.*;
+
+/**
+ * A non-reentrant reader/writer spin lock in a 64-bit word of shared memory, e.g. from OS.map()
+ * <p>
+ * The word is the number of readers, or the owner id of the writer with the top bit set. A
+ * waiting writer sets a flag which stops new readers so writers are not starved. A writer in a
+ * process which has died is detected and the lock broken, however a reader which dies holding the
+ * lock can't be identified.
+ */
+public class ReadWriteSpinLock {
+    public static final int SIZE = 8;
+    private static final Memory MEMORY = OS.memory();
+    private static final long WRITE_LOCKED = Long.MIN_VALUE;
+    private static final long WRITER_WAITING = 1L << 62;
+    private static final long READERS_MASK = 0xFFFFFFFFL;
+
+    private final long address;
+
+    /**
+     * @param address of an 8 byte aligned word, initially zero.
+     */
+    public ReadWriteSpinLock(long address) {
+        checkAligned(address);
+        this.address = address;
+    }
+
+    public boolean tryReadLock() {
+        long value = MEMORY.readVolatileLong(address);
+        return value >= 0 && (value & WRITER_WAITING) == 0
+                && MEMORY.compareAndSwapLong(address, value, value + 1);
+    }
+
+    public void readLock() {
+        for (int spins = 0; ; spins = backOff(spins)) {
+            long value = MEMORY.readVolatileLong(address);
+            if (value >= 0 && (value & WRITER_WAITING) == 0) {
+                if (MEMORY.compareAndSwapLong(address, value, value + 1))
+                    return;
+            } else if (checkOwner(spins)) {
+                if (value < 0)
+                    breakIfDead(value);
+                else if (value == WRITER_WAITING)
+                    // the writer which was waiting appears to have gone away.
+                    MEMORY.compareAndSwapLong(address, WRITER_WAITING, 0L);
+            }
+        }
+    }
+
+    public void readUnlock() throws IllegalMonitorStateException {
+        for (; ; ) {
+            long value = MEMORY.readVolatileLong(address);
+            if (value < 0 || (value & READERS_MASK) == 0)
+                throw new IllegalMonitorStateException("Not read locked");
+            if (MEMORY.compareAndSwapLong(address, value, value - 1))
+                return;
+        }
+    }
+
+    public boolean tryWriteLock() {
+        long value = MEMORY.readVolatileLong(address);
+        return (value == 0 || value == WRITER_WAITING)
+                && MEMORY.compareAndSwapLong(address, value, WRITE_LOCKED | currentOwner());
+    }
+
+    public void writeLock() {
+        long locked = WRITE_LOCKED | currentOwner();
+        for (int spins = 0; ; spins = backOff(spins)) {
+            long value = MEMORY.readVolatileLong(address);
+            if (value == 0 || value == WRITER_WAITING) {
+                if (MEMORY.compareAndSwapLong(address, value, locked))
+                    return;
+            } else if (value == locked) {
+                throw new IllegalStateException("Already write locked by this thread");
+            } else if (value > 0) {
+                if ((value & WRITER_WAITING) == 0)
+                    MEMORY.compareAndSwapLong(address, value, value | WRITER_WAITING);
+            } else if (checkOwner(spins)) {
+                breakIfDead(value);
+            }
+        }
+    }
+
+    public void writeUnlock() throws IllegalMonitorStateException {
+        if (MEMORY.readVolatileLong(address) != (WRITE_LOCKED | currentOwner()))
+            throw new IllegalMonitorStateException("Not write locked by this thread");
+        MEMORY.writeOrderedLong(address, 0L);
+    }
+
+    public boolean isWriteLocked() {
+        return MEMORY.readVolatileLong(address) < 0;
+    }
+
+    public int readerCount() {
+        long value = MEMORY.readVolatileLong(address);
+        return value < 0 ? 0 : (int) (value & READERS_MASK);
+    }
+
+    /**
+     * Unlock if the writer's process has died.
+     *
+     * @return true if the lock was broken.
+     */
+    public boolean breakIfOwnerDead() {
+        long value = MEMORY.readVolatileLong(address);
+        return value < 0 && breakIfDead(value);
+    }
+
+    private boolean breakIfDead(long value) {
+        return isOwnerDead(value & ~WRITE_LOCKED) && MEMORY.compareAndSwapLong(address, value, 0L);
+    }
+}
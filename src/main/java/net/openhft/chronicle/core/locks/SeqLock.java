@@ -0,0 +1,127 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.locks;
+
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.OS;
+
+import static net.openhft.chronicle.core.locks.Locks.*;
+
+/**
+ * A sequence lock in 16 bytes of shared memory, e.g. from OS.map(), for data with one writer at a
+ * time and readers which never block the writer.
+ * <pre>
+ * long seq;
+ * do {
+ *     seq = seqLock.readBegin();
+ *     // read the data
+ * } while (seqLock.readRetry(seq));
+ * </pre>
+ * The layout is a 64-bit sequence which is odd while a write is in progress, then the owner id of
+ * the writer. A writer in a process which has died is detected and the lock broken, in which case
+ * readers may see the partial update it made.
+ */
+public class SeqLock {
+    public static final int SIZE = 16;
+    private static final Memory MEMORY = OS.memory();
+    private static final int SEQUENCE = 0;
+    private static final int OWNER = 8;
+
+    private final long address;
+
+    /**
+     * @param address of 16 bytes, 8 byte aligned, initially zero.
+     */
+    public SeqLock(long address) {
+        checkAligned(address);
+        this.address = address;
+    }
+
+    /**
+     * @return the sequence to pass to readRetry, waiting for any write in progress to finish.
+     */
+    public long readBegin() {
+        for (int spins = 0; ; spins = backOff(spins)) {
+            long seq = MEMORY.readVolatileLong(address + SEQUENCE);
+            if ((seq & 1) == 0)
+                return seq;
+            if (checkOwner(spins))
+                breakIfOwnerDead();
+        }
+    }
+
+    /**
+     * @param seq from readBegin()
+     * @return true if there was a write while reading, and the read should be repeated.
+     */
+    public boolean readRetry(long seq) {
+        MEMORY.loadFence();
+        return MEMORY.readVolatileLong(address + SEQUENCE) != seq;
+    }
+
+    public boolean tryWriteLock() {
+        long seq = MEMORY.readVolatileLong(address + SEQUENCE);
+        if ((seq & 1) != 0 || !MEMORY.compareAndSwapLong(address + SEQUENCE, seq, seq + 1))
+            return false;
+        MEMORY.writeOrderedLong(address + OWNER, currentOwner());
+        return true;
+    }
+
+    public void writeLock() {
+        long owner = currentOwner();
+        for (int spins = 0; ; spins = backOff(spins)) {
+            long seq = MEMORY.readVolatileLong(address + SEQUENCE);
+            if ((seq & 1) == 0) {
+                if (MEMORY.compareAndSwapLong(address + SEQUENCE, seq, seq + 1)) {
+                    MEMORY.writeOrderedLong(address + OWNER, owner);
+                    return;
+                }
+            } else if (MEMORY.readVolatileLong(address + OWNER) == owner) {
+                throw new IllegalStateException("Already write locked by this thread");
+            } else if (checkOwner(spins)) {
+                breakIfOwnerDead();
+            }
+        }
+    }
+
+    public void writeUnlock() throws IllegalMonitorStateException {
+        if (MEMORY.readVolatileLong(address + OWNER) != currentOwner())
+            throw new IllegalMonitorStateException("Not write locked by this thread");
+        long seq = MEMORY.readLong(address + SEQUENCE);
+        MEMORY.writeLong(address + OWNER, 0L);
+        MEMORY.writeOrderedLong(address + SEQUENCE, seq + 1);
+    }
+
+    public long sequence() {
+        return MEMORY.readVolatileLong(address + SEQUENCE);
+    }
+
+    /**
+     * End the write if the writer's process has died.
+     *
+     * @return true if the lock was broken.
+     */
+    public boolean breakIfOwnerDead() {
+        long seq = MEMORY.readVolatileLong(address + SEQUENCE);
+        long owner = MEMORY.readVolatileLong(address + OWNER);
+        if ((seq & 1) == 0 || owner == 0 || !isOwnerDead(owner)
+                || !MEMORY.compareAndSwapLong(address + OWNER, owner, 0L))
+            return false;
+        MEMORY.writeOrderedLong(address + SEQUENCE, seq + 1);
+        return true;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.locks;
+
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.OS;
+
+import java.util.concurrent.TimeUnit;
+
+import static net.openhft.chronicle.core.locks.Locks.*;
+
+/**
+ * A non-reentrant spin lock in a 64-bit word of shared memory, e.g. from OS.map()
+ * <p>
+ * The word is 0 when unlocked, or the owner id of the holder. A lock held by a process which
+ * has died is broken by the next thread to wait for it.
+ */
+public class SpinLock {
+    public static final int SIZE = 8;
+    private static final Memory MEMORY = OS.memory();
+
+    private final long address;
+
+    /**
+     * @param address of an 8 byte aligned word, initially zero.
+     */
+    public SpinLock(long address) {
+        checkAligned(address);
+        this.address = address;
+    }
+
+    public boolean tryLock() {
+        return MEMORY.compareAndSwapLong(address, 0L, currentOwner());
+    }
+
+    public void lock() {
+        long owner = currentOwner();
+        for (int spins = 0; ; spins = backOff(spins)) {
+            long value = MEMORY.readVolatileLong(address);
+            if (value == 0) {
+                if (MEMORY.compareAndSwapLong(address, 0L, owner))
+                    return;
+            } else if (value == owner) {
+                throw new IllegalStateException("Already locked by this thread");
+            } else if (checkOwner(spins)) {
+                breakIfDead(value);
+            }
+        }
+    }
+
+    /**
+     * @param timeout  to wait
+     * @param timeUnit of the timeout
+     * @return true if locked, false if the timeout expired first.
+     */
+    public boolean tryLock(long timeout, TimeUnit timeUnit) {
+        long end = System.nanoTime() + timeUnit.toNanos(timeout);
+        for (int spins = 0; ; spins = backOff(spins)) {
+            long value = MEMORY.readVolatileLong(address);
+            if (value == 0) {
+                if (tryLock())
+                    return true;
+            } else if (checkOwner(spins)) {
+                breakIfDead(value);
+            }
+            if (System.nanoTime() - end > 0)
+                return false;
+        }
+    }
+
+    public void unlock() throws IllegalMonitorStateException {
+        long owner = currentOwner();
+        if (MEMORY.readVolatileLong(address) != owner)
+            throw new IllegalMonitorStateException("Not locked by this thread");
+        MEMORY.writeOrderedLong(address, 0L);
+    }
+
+    public boolean isLocked() {
+        return MEMORY.readVolatileLong(address) != 0;
+    }
+
+    /**
+     * @return the owner id of the holder or 0 if unlocked.
+     */
+    public long owner() {
+        return MEMORY.readVolatileLong(address);
+    }
+
+    /**
+     * Unlock if the holder's process has died.
+     *
+     * @return true if the lock was broken.
+     */
+    public boolean breakIfOwnerDead() {
+        long value = MEMORY.readVolatileLong(address);
+        return value != 0 && breakIfDead(value);
+    }
+
+    private boolean breakIfDead(long value) {
+        return isOwnerDead(value) && MEMORY.compareAndSwapLong(address, value, 0L);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.locks;
+
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.OS;
+
+import static net.openhft.chronicle.core.locks.Locks.*;
+
+/**
+ * A fair, non-reentrant ticket lock in 16 bytes of shared memory, e.g. from OS.map()
+ * <p>
+ * The layout is a 32-bit next ticket, a 32-bit ticket now being served, and the 64-bit owner id
+ * of the holder. A lock held by a process which has died is broken by the next waiter, however
+ * a process which dies while queued for the lock will stall the queue.
+ */
+public class TicketLock {
+    public static final int SIZE = 16;
+    private static final Memory MEMORY = OS.memory();
+    private static final int NEXT = 0;
+    private static final int SERVING = 4;
+    private static final int OWNER = 8;
+
+    private final long address;
+
+    /**
+     * @param address of 16 bytes, 8 byte aligned, initially zero.
+     */
+    public TicketLock(long address) {
+        checkAligned(address);
+        this.address = address;
+    }
+
+    public boolean tryLock() {
+        int serving = MEMORY.readVolatileInt(address + SERVING);
+        if (MEMORY.readVolatileInt(address + NEXT) != serving
+                || !MEMORY.compareAndSwapInt(address + NEXT, serving, serving + 1))
+            return false;
+        MEMORY.writeOrderedLong(address + OWNER, currentOwner());
+        return true;
+    }
+
+    public void lock() {
+        long owner = currentOwner();
+        if (MEMORY.readVolatileLong(address + OWNER) == owner)
+            throw new IllegalStateException("Already locked by this thread");
+        int ticket;
+        do {
+            ticket = MEMORY.readVolatileInt(address + NEXT);
+        } while (!MEMORY.compareAndSwapInt(address + NEXT, ticket, ticket + 1));
+
+        for (int spins = 0; MEMORY.readVolatileInt(address + SERVING) != ticket; spins = backOff(spins)) {
+            if (checkOwner(spins))
+                breakIfOwnerDead();
+        }
+        MEMORY.writeOrderedLong(address + OWNER, owner);
+    }
+
+    public void unlock() throws IllegalMonitorStateException {
+        if (MEMORY.readVolatileLong(address + OWNER) != currentOwner())
+            throw new IllegalMonitorStateException("Not locked by this thread");
+        int serving = MEMORY.readInt(address + SERVING);
+        MEMORY.writeLong(address + OWNER, 0L);
+        MEMORY.writeOrderedInt(address + SERVING, serving + 1);
+    }
+
+    public boolean isLocked() {
+        return MEMORY.readVolatileInt(address + NEXT) != MEMORY.readVolatileInt(address + SERVING);
+    }
+
+    /**
+     * @return the number of threads waiting for or holding the lock.
+     */
+    public int queueLength() {
+        return MEMORY.readVolatileInt(address + NEXT) - MEMORY.readVolatileInt(address + SERVING);
+    }
+
+    /**
+     * @return the owner id of the holder or 0 if unlocked.
+     */
+    public long owner() {
+        return MEMORY.readVolatileLong(address + OWNER);
+    }
+
+    /**
+     * Pass the lock to the next waiter if the holder's process has died.
+     *
+     * @return true if the lock was broken.
+     */
+    public boolean breakIfOwnerDead() {
+        long owner = MEMORY.readVolatileLong(address + OWNER);
+        if (owner == 0 || !isOwnerDead(owner))
+            return false;
+        int serving = MEMORY.readVolatileInt(address + SERVING);
+        // only one thread can clear the owner so serving is only moved on once.
+        if (!MEMORY.compareAndSwapLong(address + OWNER, owner, 0L))
+            return false;
+        MEMORY.writeOrderedInt(address + SERVING, serving + 1);
+        return true;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.metrics;
+
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.OS;
+
+/**
+ * A value in a MetricsRegistry which is set, e.g. memory used or a latency.
+ */
+public final class Gauge {
+    private static final Memory MEMORY = OS.memory();
+    private final long address;
+
+    Gauge(long address) {
+        this.address = address;
+    }
+
+    public void set(long value) {
+        MEMORY.writeOrderedLong(address, value);
+    }
+
+    public long get() {
+        return MEMORY.readVolatileLong(address);
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(get());
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.metrics;
+
+public enum MetricType {
+    /**
+     * A count which only goes up.
+     */
+    COUNTER,
+    /**
+     * A value which is set, e.g. memory used or a latency.
+     */
+    GAUGE;
+
+    static MetricType forCode(int code) {
+        return code <= 0 || code > values().length ? null : values()[code - 1];
+    }
+
+    int code() {
+        return ordinal() + 1;
+    }
+}
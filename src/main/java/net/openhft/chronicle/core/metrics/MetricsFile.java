@@ -0,0 +1,144 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.metrics;
+
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.core.values.NativeStringValue;
+import net.openhft.chronicle.core.values.NativeStringValue.Encoding;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+/**
+ * The layout of a memory mapped metrics file.
+ * <p>
+ * A 64 byte header of a magic number, the maximum number of metrics, the maximum label length,
+ * the number of metrics allocated and the pid of the writer. Then a table of labels, each a type
+ * and the name as a NativeStringValue. Then the values, one per cache line.
+ */
+abstract class MetricsFile implements Closeable {
+    static final long MAGIC = 0x3172746d6b6c6863L; // "chlkmtr1"
+    static final int MAX_METRICS = 8;
+    static final int LABEL_LENGTH = 12;
+    static final int COUNT = 16;
+    static final int PID = 20;
+    static final int HEADER = 64;
+    static final int VALUE_SIZE = 64;
+    static final Memory MEMORY = OS.memory();
+    private static final Logger LOG = LoggerFactory.getLogger(MetricsFile.class);
+
+    final String filename;
+    final long address;
+    final long size;
+    final int maxMetrics;
+    final int labelLength;
+    private final int entrySize;
+    private final long values;
+    private boolean closed = false;
+
+    MetricsFile(String filename, long address, long size, int maxMetrics, int labelLength) {
+        this.filename = filename;
+        this.address = address;
+        this.size = size;
+        this.maxMetrics = maxMetrics;
+        this.labelLength = labelLength;
+        this.entrySize = entrySize(labelLength);
+        this.values = address + valuesOffset(maxMetrics, labelLength);
+    }
+
+    private static int entrySize(int labelLength) {
+        return (int) ((8 + NativeStringValue.sizeFor(labelLength) + 7) & ~7);
+    }
+
+    private static long valuesOffset(int maxMetrics, int labelLength) {
+        long end = HEADER + (long) maxMetrics * entrySize(labelLength);
+        return (end + VALUE_SIZE - 1) & -VALUE_SIZE;
+    }
+
+    static long sizeFor(int maxMetrics, int labelLength) {
+        return valuesOffset(maxMetrics, labelLength) + (long) maxMetrics * VALUE_SIZE;
+    }
+
+    static long map(String filename, boolean writable, long size) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(filename, writable ? "rw" : "r")) {
+            if (writable) {
+                // start with an empty file of zeros.
+                raf.setLength(0);
+                raf.setLength(size);
+            }
+            return OS.map(raf.getChannel(), writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    long labelAddress(int index) {
+        return address + HEADER + (long) index * entrySize;
+    }
+
+    long valueAddress(int index) {
+        return values + (long) index * VALUE_SIZE;
+    }
+
+    /**
+     * @return the number of metrics allocated.
+     */
+    public int count() {
+        return Math.min(maxMetrics, MEMORY.readVolatileInt(address + COUNT));
+    }
+
+    /**
+     * @return the type of a metric or null if it is still being allocated.
+     */
+    public MetricType type(int index) {
+        return MetricType.forCode(MEMORY.readVolatileInt(labelAddress(index)));
+    }
+
+    public String name(int index) {
+        return NativeStringValue.readString(null, labelAddress(index) + 8, labelLength, Encoding.UTF8);
+    }
+
+    public long value(int index) {
+        return MEMORY.readVolatileLong(valueAddress(index));
+    }
+
+    /**
+     * @return the pid of the process writing the metrics.
+     */
+    public int pid() {
+        return MEMORY.readVolatileInt(address + PID);
+    }
+
+    public String filename() {
+        return filename;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed)
+            return;
+        closed = true;
+        try {
+            OS.unmap(address, size);
+        } catch (IOException e) {
+            LOG.warn("Failed to unmap " + filename, e);
+        }
+    }
+}
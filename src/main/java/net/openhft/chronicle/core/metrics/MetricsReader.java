@@ -0,0 +1,79 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Read the metrics another process is writing with a MetricsRegistry.
+ * <p>
+ * Run as a command line tool, it prints the metrics of the files or directories given, by
+ * default MetricsRegistry.METRICS_DIR
+ */
+public class MetricsReader extends MetricsFile {
+    private MetricsReader(String filename, long address, long size, int maxMetrics, int labelLength) {
+        super(filename, address, size, maxMetrics, labelLength);
+    }
+
+    /**
+     * @param filename of a metrics file
+     * @return a reader of that file
+     * @throws IOException if the file doesn't exist or isn't a metrics file.
+     */
+    public static MetricsReader open(String filename) throws IOException {
+        int maxMetrics, labelLength;
+        try (RandomAccessFile raf = new RandomAccessFile(filename, "r")) {
+            if (raf.length() < HEADER || Long.reverseBytes(raf.readLong()) != MAGIC)
+                throw new IOException("Not a metrics file " + filename);
+            maxMetrics = Integer.reverseBytes(raf.readInt());
+            labelLength = Integer.reverseBytes(raf.readInt());
+        }
+        long size = sizeFor(maxMetrics, labelLength);
+        long address = map(filename, false, size);
+        return new MetricsReader(filename, address, size, maxMetrics, labelLength);
+    }
+
+    public static void main(String... args) throws IOException {
+        if (args.length == 0)
+            args = new String[]{MetricsRegistry.METRICS_DIR};
+        for (String arg : args) {
+            File file = new File(arg);
+            File[] files = file.isDirectory() ? file.listFiles((dir, name) -> name.endsWith(".metrics")) : new File[]{file};
+            if (files == null)
+                continue;
+            for (File f : files) {
+                try (MetricsReader reader = open(f.getPath())) {
+                    System.out.println(reader);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(filename).append(" pid: ").append(pid());
+        for (int i = 0; i < count(); i++) {
+            MetricType type = type(i);
+            if (type != null)
+                sb.append("\n\t").append(name(i)).append(' ').append(type).append(' ').append(value(i));
+        }
+        return sb.toString();
+    }
+}
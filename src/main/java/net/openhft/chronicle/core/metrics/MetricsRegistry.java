@@ -0,0 +1,111 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.metrics;
+
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.values.NativeStringValue;
+import net.openhft.chronicle.core.values.NativeStringValue.Encoding;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Named counters and gauges in a memory mapped file, which another process can read with
+ * MetricsReader without JMX or sockets.
+ * <p>
+ * Metrics are allocated once, by name, and updating one is a plain ordered write with no
+ * allocation or locking.
+ */
+public class MetricsRegistry extends MetricsFile {
+    public static final String METRICS_DIR = System.getProperty("chronicle.metrics.dir", OS.TARGET + "/metrics");
+    public static final int DEFAULT_MAX_METRICS = 1024;
+    public static final int DEFAULT_LABEL_LENGTH = 120;
+
+    private MetricsRegistry(String filename, long address, long size, int maxMetrics, int labelLength) {
+        super(filename, address, size, maxMetrics, labelLength);
+    }
+
+    /**
+     * Create a registry for this process in METRICS_DIR named by the process id.
+     *
+     * @return the registry
+     * @throws IOException if the file couldn't be created.
+     */
+    public static MetricsRegistry create() throws IOException {
+        File dir = new File(METRICS_DIR);
+        if (!dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("Unable to create " + dir);
+        return create(new File(dir, OS.getProcessId() + ".metrics").getPath(), DEFAULT_MAX_METRICS, DEFAULT_LABEL_LENGTH);
+    }
+
+    /**
+     * Create a registry, replacing any existing file.
+     *
+     * @param filename    to create
+     * @param maxMetrics  the number of metrics which can be allocated
+     * @param labelLength the maximum length of a name in UTF-8 bytes
+     * @return the registry
+     * @throws IOException if the file couldn't be created or mapped.
+     */
+    public static MetricsRegistry create(String filename, int maxMetrics, int labelLength) throws IOException {
+        if (maxMetrics < 1 || labelLength < 1)
+            throw new IllegalArgumentException("maxMetrics: " + maxMetrics + " labelLength: " + labelLength);
+        long size = sizeFor(maxMetrics, labelLength);
+        long address = map(filename, true, size);
+        MEMORY.writeInt(address + MAX_METRICS, maxMetrics);
+        MEMORY.writeInt(address + LABEL_LENGTH, labelLength);
+        MEMORY.writeInt(address + PID, OS.getProcessId());
+        // readers check the magic number last.
+        MEMORY.writeOrderedLong(address, MAGIC);
+        return new MetricsRegistry(filename, address, size, maxMetrics, labelLength);
+    }
+
+    /**
+     * @param name of the counter
+     * @return the counter of this name, allocated if it doesn't exist.
+     */
+    public Counter counter(String name) {
+        return new Counter(valueAddress(acquire(name, MetricType.COUNTER)));
+    }
+
+    /**
+     * @param name of the gauge
+     * @return the gauge of this name, allocated if it doesn't exist.
+     */
+    public Gauge gauge(String name) {
+        return new Gauge(valueAddress(acquire(name, MetricType.GAUGE)));
+    }
+
+    private synchronized int acquire(String name, MetricType type) {
+        int count = count();
+        for (int i = 0; i < count; i++) {
+            if (name.equals(name(i))) {
+                if (type(i) != type)
+                    throw new IllegalArgumentException(name + " is a " + type(i) + " not a " + type);
+                return i;
+            }
+        }
+        if (count >= maxMetrics)
+            throw new IllegalStateException("No more than " + maxMetrics + " metrics can be allocated");
+        long label = labelAddress(count);
+        // throws IllegalArgumentException if the name is too long.
+        NativeStringValue.write(null, label + 8, labelLength, Encoding.UTF8, name);
+        MEMORY.writeOrderedInt(label, type.code());
+        MEMORY.writeOrderedInt(address + COUNT, count + 1);
+        return count;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.pool;
+
+import net.openhft.chronicle.core.Maths;
+import net.openhft.chronicle.core.util.StringUtils;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A StringInterner which can be shared between threads. Each hash maps to a set of ways slots, so strings
+ * which collide don't evict each other, and a set replaces the least recently used string approximately,
+ * with a clock of one bit per slot.
+ * <p>
+ * Lookups don't lock. Updates aren't atomic either, so racing threads can lose an entry or both add the same
+ * one, but as Strings are immutable a lookup always sees an equal String or misses.
+ */
+public class ConcurrentStringInterner {
+    private final String[] slots;
+    // set when a slot is hit, cleared as the clock hand passes.
+    private final boolean[] used;
+    // the clock hand for each set.
+    private final byte[] hands;
+    private final int ways;
+    private final int setMask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param capacity the minimum number of strings held, rounded up to a power of 2 sets
+     * @param ways     the number of strings in each set, 1 to 64
+     */
+    public ConcurrentStringInterner(int capacity, int ways) {
+        if (ways < 1 || ways > 64)
+            throw new IllegalArgumentException("ways must be 1 to 64: " + ways);
+        int sets = Maths.nextPower2((capacity + ways - 1) / ways, 16);
+        slots = new String[sets * ways];
+        used = new boolean[sets * ways];
+        hands = new byte[sets];
+        this.ways = ways;
+        setMask = sets - 1;
+    }
+
+    public String intern(CharSequence cs) {
+        if (cs == null)
+            return null;
+        int set = Maths.hash(cs) & setMask;
+        int base = set * ways;
+        for (int i = base; i < base + ways; i++) {
+            String s = slots[i];
+            if (s != null && StringUtils.isEqual(s, cs)) {
+                // only write if it changes to avoid sharing the cache line.
+                if (!used[i])
+                    used[i] = true;
+                hits.increment();
+                return s;
+            }
+        }
+        misses.increment();
+        String s2 = cs.toString();
+        slots[victim(set, base)] = s2;
+        return s2;
+    }
+
+    private int victim(int set, int base) {
+        int hand = hands[set];
+        int victim = base + hand;
+        // after one sweep all the used bits are clear.
+        for (int n = 0; n < 2 * ways; n++) {
+            int i = base + hand;
+            if (++hand == ways)
+                hand = 0;
+            if (slots[i] == null) {
+                victim = i;
+                break;
+            }
+            if (used[i]) {
+                used[i] = false;
+            } else {
+                victim = i;
+                evictions.increment();
+                break;
+            }
+        }
+        hands[set] = (byte) hand;
+        return victim;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of strings replaced by another.
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public void resetStats() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    @Override
+    public String toString() {
+        long hits = hits(), misses = misses();
+        long total = Math.max(1, hits + misses);
+        return "ConcurrentStringInterner{capacity=" + capacity() + ", ways=" + ways +
+                ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions() +
+                ", hitRate=" + (hits * 1000 / total) / 10.0 + "%}";
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.ring;
+
+/**
+ * Callback for each record read from a RingBuffer.
+ */
+@FunctionalInterface
+public interface RecordHandler {
+    /**
+     * The record is only valid for the duration of this call.
+     *
+     * @param type    of the record given when it was written
+     * @param address of the first byte of the record
+     * @param length  of the record in bytes
+     */
+    void onRecord(int type, long address, int length);
+}
@@ -0,0 +1,333 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.ring;
+
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.NativeOwner;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.io.Closeable;
+
+/**
+ * A ring buffer of records in native or mapped memory for one consumer and either one or many
+ * producers, in the same or different processes.
+ * <p>
+ * Each record has an 8 byte header of its length and a type, and is padded to a multiple of 8
+ * bytes. Records of a fixed size are records which all have the same length. A producer claims
+ * space, writes the record in place and commits it. The consumer reads records in place, in
+ * batches, and moves the head once per batch.
+ * <p>
+ * The tail, a cache of the head for producers, and the head are each on their own pair of cache
+ * lines at the start of the region, followed by the data.
+ */
+public class RingBuffer implements Closeable {
+    public static final int HEADER_SIZE = 512;
+    public static final int RECORD_HEADER = 8;
+    static final int PADDING_TYPE = -1;
+    private static final Memory MEMORY = OS.memory();
+    private static final int CAPACITY = 0;
+    private static final int TAIL = 128;
+    private static final int HEAD_CACHE = 256;
+    private static final int HEAD = 384;
+
+    private final long address;
+    private final long data;
+    private final int capacity;
+    private final int mask;
+    private final int maxRecordLength;
+    private final ProducerType producerType;
+    // null if bound to memory owned elsewhere.
+    private final NativeOwner owner;
+
+    /**
+     * Bind to a region of sizeFor(capacity) bytes, e.g. from OS.map() If the region is all zeros
+     * it is initialised, otherwise it must have been created with the same capacity.
+     *
+     * @param address      of the region, 8 byte aligned.
+     * @param capacity     of the data, a power of 2
+     * @param producerType whether there will be one or many producers.
+     */
+    public RingBuffer(long address, int capacity, ProducerType producerType) {
+        this(address, capacity, producerType, null);
+    }
+
+    private RingBuffer(long address, int capacity, ProducerType producerType, NativeOwner owner) {
+        if ((address & 7) != 0)
+            throw new IllegalArgumentException("address must be 8 byte aligned: " + Long.toHexString(address));
+        if (capacity < 64 || Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("capacity must be a power of 2 and at least 64: " + capacity);
+        if (!MEMORY.compareAndSwapLong(address + CAPACITY, 0L, capacity)) {
+            long existing = MEMORY.readVolatileLong(address + CAPACITY);
+            if (existing != capacity)
+                throw new IllegalStateException("Ring buffer has capacity " + existing + " not " + capacity);
+        }
+        this.address = address;
+        this.data = address + HEADER_SIZE;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.maxRecordLength = capacity / 8 - RECORD_HEADER;
+        this.producerType = producerType;
+        this.owner = owner;
+    }
+
+    /**
+     * Allocate a ring buffer in native memory which is freed on close(), or once collected if not closed.
+     *
+     * @param capacity     of the data, a power of 2
+     * @param producerType whether there will be one or many producers.
+     * @return the ring buffer.
+     */
+    public static RingBuffer allocate(int capacity, ProducerType producerType) {
+        NativeOwner owner = NativeOwner.allocateZeroed(sizeFor(capacity));
+        return new RingBuffer(owner.address(), capacity, producerType, owner);
+    }
+
+    /**
+     * @param capacity of the data
+     * @return the size of the region needed.
+     */
+    public static long sizeFor(int capacity) {
+        return HEADER_SIZE + (long) capacity;
+    }
+
+    static int recordLength(int length) {
+        return (RECORD_HEADER + length + 7) & ~7;
+    }
+
+    private static long header(int type, int length) {
+        return ((long) type << 32) | (length & 0xFFFFFFFFL);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the largest record which can be written, an eighth of the capacity.
+     */
+    public int maxRecordLength() {
+        return maxRecordLength;
+    }
+
+    public ProducerType producerType() {
+        return producerType;
+    }
+
+    /**
+     * Claim space for a record which must be committed with commit() or dropped with abort()
+     *
+     * @param type   of the record, not negative.
+     * @param length of the record in bytes
+     * @return the address to write the record to, or 0 if the ring buffer is full.
+     */
+    public long tryClaim(int type, int length) {
+        return tryClaim(type, length, 1);
+    }
+
+    /**
+     * Claim space for count records of the same type and length in one operation, spaced
+     * recordLength(length) bytes apart, which must be committed with commit(address, count)
+     *
+     * @param type   of the records, not negative.
+     * @param length of each record in bytes
+     * @param count  of records
+     * @return the address of the first record, or 0 if there isn't room for all of them.
+     */
+    public long tryClaim(int type, int length, int count) {
+        if (type < 0)
+            throw new IllegalArgumentException("type must not be negative: " + type);
+        if (length < 0 || length > maxRecordLength)
+            throw new IllegalArgumentException("length must be between 0 and " + maxRecordLength + " was " + length);
+        if (count < 1 || (long) count * recordLength(length) > capacity / 2)
+            throw new IllegalArgumentException("Invalid count: " + count);
+        int recordLength = recordLength(length);
+        int required = recordLength * count;
+        long tail;
+        int padding;
+        for (; ; ) {
+            tail = MEMORY.readVolatileLong(address + TAIL);
+            int index = (int) tail & mask;
+            int toEnd = capacity - index;
+            padding = required > toEnd ? toEnd : 0;
+            long newTail = tail + padding + required;
+            long head = MEMORY.readVolatileLong(address + HEAD_CACHE);
+            if (newTail - head > capacity) {
+                head = MEMORY.readVolatileLong(address + HEAD);
+                if (newTail - head > capacity)
+                    return 0;
+                MEMORY.writeOrderedLong(address + HEAD_CACHE, head);
+            }
+            if (producerType == ProducerType.SINGLE) {
+                MEMORY.writeOrderedLong(address + TAIL, newTail);
+                break;
+            }
+            if (MEMORY.compareAndSwapLong(address + TAIL, tail, newTail))
+                break;
+        }
+        long recordAddress = data + ((int) tail & mask);
+        if (padding > 0) {
+            MEMORY.writeOrderedLong(recordAddress, header(PADDING_TYPE, padding));
+            recordAddress = data;
+        }
+        // a negative length marks the record as claimed but not committed.
+        long uncommitted = header(type, -(RECORD_HEADER + length));
+        for (int i = 0; i < count; i++)
+            MEMORY.writeOrderedLong(recordAddress + i * recordLength, uncommitted);
+        return recordAddress + RECORD_HEADER;
+    }
+
+    /**
+     * Make a claimed record visible to the consumer.
+     *
+     * @param address returned by tryClaim
+     */
+    public void commit(long address) {
+        commit(address, 1);
+    }
+
+    /**
+     * Make count claimed records visible to the consumer.
+     *
+     * @param address returned by tryClaim
+     * @param count   of records claimed.
+     */
+    public void commit(long address, int count) {
+        long headerAddress = address - RECORD_HEADER;
+        long header = MEMORY.readLong(headerAddress);
+        int length = (int) header;
+        if (length >= 0)
+            throw new IllegalStateException("Record not claimed or already committed");
+        long committed = header(type(header), -length);
+        int recordLength = recordLength(-length - RECORD_HEADER);
+        for (int i = 0; i < count; i++)
+            MEMORY.writeOrderedLong(headerAddress + i * recordLength, committed);
+    }
+
+    /**
+     * Drop a claimed record, the consumer will skip it.
+     *
+     * @param address returned by tryClaim
+     */
+    public void abort(long address) {
+        long headerAddress = address - RECORD_HEADER;
+        int length = (int) MEMORY.readLong(headerAddress);
+        if (length >= 0)
+            throw new IllegalStateException("Record not claimed or already committed");
+        MEMORY.writeOrderedLong(headerAddress, header(PADDING_TYPE, -length));
+    }
+
+    /**
+     * Copy a record from native memory into the ring buffer.
+     *
+     * @return false if the ring buffer is full.
+     */
+    public boolean write(int type, long fromAddress, int length) {
+        long to = tryClaim(type, length);
+        if (to == 0)
+            return false;
+        MEMORY.copyMemory(fromAddress, to, length);
+        commit(to);
+        return true;
+    }
+
+    /**
+     * Copy a record from a byte[] into the ring buffer.
+     *
+     * @return false if the ring buffer is full.
+     */
+    public boolean write(int type, byte[] bytes, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > bytes.length - length)
+            throw new ArrayIndexOutOfBoundsException("offset: " + offset + " length: " + length);
+        long to = tryClaim(type, length);
+        if (to == 0)
+            return false;
+        MEMORY.copyMemory(bytes, offset, to, length);
+        commit(to);
+        return true;
+    }
+
+    private static int type(long header) {
+        return (int) (header >> 32);
+    }
+
+    /**
+     * Read committed records in order, up to a limit, then free their space. Only one thread may
+     * read at a time.
+     *
+     * @param handler to call for each record
+     * @param limit   the maximum number of records to read.
+     * @return the number of records read.
+     */
+    public int read(RecordHandler handler, int limit) {
+        long head = MEMORY.readLong(address + HEAD);
+        int index = (int) head & mask;
+        int read = 0;
+        int bytesRead = 0;
+        try {
+            while (read < limit && bytesRead < capacity) {
+                long headerAddress = data + ((index + bytesRead) & mask);
+                long header = MEMORY.readVolatileLong(headerAddress);
+                int length = (int) header;
+                if (length <= 0)
+                    break;
+                int type = type(header);
+                bytesRead += recordLength(length - RECORD_HEADER);
+                if (type == PADDING_TYPE)
+                    continue;
+                read++;
+                handler.onRecord(type, headerAddress + RECORD_HEADER, length - RECORD_HEADER);
+            }
+        } finally {
+            if (bytesRead > 0) {
+                // zero what was read so a header of 0 means nothing has been written yet.
+                int toEnd = Math.min(bytesRead, capacity - index);
+                MEMORY.setMemory(data + index, toEnd, (byte) 0);
+                if (bytesRead > toEnd)
+                    MEMORY.setMemory(data, bytesRead - toEnd, (byte) 0);
+                MEMORY.writeOrderedLong(address + HEAD, head + bytesRead);
+            }
+        }
+        return read;
+    }
+
+    /**
+     * @return the bytes claimed and not yet read, including headers and padding.
+     */
+    public long used() {
+        return MEMORY.readVolatileLong(address + TAIL) - MEMORY.readVolatileLong(address + HEAD);
+    }
+
+    public boolean isEmpty() {
+        return used() == 0;
+    }
+
+    @Override
+    public void close() {
+        if (owner != null)
+            owner.close();
+    }
+
+    public enum ProducerType {
+        /**
+         * Only one thread will claim, so no CAS is needed.
+         */
+        SINGLE,
+        /**
+         * Any number of threads or processes claim with a CAS on the tail.
+         */
+        MULTI
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.threads;
+
+import net.openhft.affinity.AffinityLock;
+import net.openhft.chronicle.core.io.Closeable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A single thread which polls its EventHandlers in turn, and calls a Pauser when none of them had work.
+ * <p>
+ * Handlers can be added or removed from any thread. Another thread passes the handler through a single
+ * slot which the event loop takes on its next pass, waiting if a previous hand off hasn't been taken yet.
+ * Both threads briefly lock the EventLoop, the caller to check whether it has started or closed, and the
+ * event loop to update its handlers, growing the array when it is full. A handler can remove
+ * itself by throwing an InvalidEventHandlerException. A handler which throws anything else is removed and
+ * the error logged. On close() any handlers which are Closeable are closed.
+ * <p>
+ * The thread can be bound to a CPU with an AffinityLock so it isn't disturbed by other threads.
+ */
+public class EventLoop implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(EventLoop.class);
+    private static final EventHandler[] NO_HANDLERS = {};
+
+    private final String name;
+    private final Pauser pauser;
+    private final boolean bindToCpu;
+    private final AtomicReference<EventHandler> toAdd = new AtomicReference<>();
+    private final AtomicReference<EventHandler> toRemove = new AtomicReference<>();
+    // only accessed by the event loop thread once started.
+    private EventHandler[] handlers = NO_HANDLERS;
+    private int count = 0;
+    private volatile Thread thread = null;
+    private volatile boolean closed = false;
+    private int cpuId = -1;
+
+    /**
+     * @param name      of the thread
+     * @param pauser    to use when idle
+     * @param bindToCpu whether to reserve a CPU for the thread
+     */
+    public EventLoop(String name, Pauser pauser, boolean bindToCpu) {
+        this.name = name;
+        this.pauser = pauser;
+        this.bindToCpu = bindToCpu;
+    }
+
+    public synchronized void start() {
+        checkOpen();
+        if (thread != null)
+            return;
+        Thread t = new Thread(this::run, name);
+        t.setDaemon(true);
+        thread = t;
+        t.start();
+    }
+
+    /**
+     * Add a handler. The loop starts polling it on its next pass.
+     *
+     * @param handler to add
+     * @throws IllegalStateException if the event loop is closed
+     */
+    public void addHandler(EventHandler handler) {
+        if (handler == null)
+            throw new NullPointerException();
+        synchronized (this) {
+            checkOpen();
+            if (thread == null) {
+                addLocal(handler);
+                return;
+            }
+        }
+        if (Thread.currentThread() == thread)
+            addLocal(handler);
+        else
+            handOff(toAdd, handler);
+    }
+
+    /**
+     * Remove a handler. The loop stops polling it on its next pass.
+     *
+     * @param handler to remove
+     */
+    public void removeHandler(EventHandler handler) {
+        if (handler == null)
+            throw new NullPointerException();
+        synchronized (this) {
+            if (thread == null || closed) {
+                removeLocal(handler);
+                return;
+            }
+        }
+        if (Thread.currentThread() == thread)
+            removeLocal(handler);
+        else
+            handOff(toRemove, handler);
+    }
+
+    private void checkOpen() {
+        if (closed)
+            throw new IllegalStateException(name + " closed");
+    }
+
+    private void handOff(AtomicReference<EventHandler> slot, EventHandler handler) {
+        Thread t = thread;
+        // wait for the event loop to take any previous hand off, unless it has stopped.
+        while (!slot.compareAndSet(null, handler)) {
+            if (closed || !t.isAlive())
+                return;
+            pauser.unpause();
+            Thread.yield();
+        }
+        pauser.unpause();
+    }
+
+    private synchronized void addLocal(EventHandler handler) {
+        if (count == handlers.length)
+            handlers = Arrays.copyOf(handlers, Math.max(8, count * 2));
+        handlers[count++] = handler;
+    }
+
+    private synchronized void removeLocal(EventHandler handler) {
+        for (int i = 0; i < count; i++) {
+            if (handlers[i] == handler) {
+                System.arraycopy(handlers, i + 1, handlers, i, count - i - 1);
+                handlers[--count] = null;
+                return;
+            }
+        }
+    }
+
+    private void run() {
+        AffinityLock lock = bindToCpu ? AffinityLock.acquireLock() : null;
+        try {
+            if (lock != null)
+                cpuId = lock.cpuId();
+            while (!closed) {
+                takeHandOffs();
+                boolean busy = false;
+                for (int i = 0; i < count; ) {
+                    EventHandler handler = handlers[i];
+                    busy |= action(handler);
+                    // if the handler was removed, the next one has taken its place.
+                    if (i < count && handlers[i] == handler)
+                        i++;
+                }
+                if (busy)
+                    pauser.reset();
+                else
+                    pauser.pause();
+            }
+        } catch (Throwable t) {
+            LOG.error(name + " died", t);
+        } finally {
+            // so handlers can't be added to an event loop which has died.
+            closed = true;
+            if (lock != null)
+                lock.release();
+            closeHandlers();
+        }
+    }
+
+    private void takeHandOffs() {
+        EventHandler handler = toAdd.get();
+        if (handler != null) {
+            addLocal(handler);
+            toAdd.set(null);
+        }
+        handler = toRemove.get();
+        if (handler != null) {
+            removeLocal(handler);
+            toRemove.set(null);
+        }
+    }
+
+    private boolean action(EventHandler handler) {
+        try {
+            return handler.action();
+        } catch (InvalidEventHandlerException e) {
+            removeLocal(handler);
+            Closeable.closeQuietly(handler);
+        } catch (Throwable t) {
+            LOG.warn(name + " removing handler " + handler, t);
+            removeLocal(handler);
+            Closeable.closeQuietly(handler);
+        }
+        return true;
+    }
+
+    private synchronized void closeHandlers() {
+        EventHandler handler = toAdd.getAndSet(null);
+        if (handler != null)
+            addLocal(handler);
+        for (int i = 0; i < count; i++) {
+            Closeable.closeQuietly(handlers[i]);
+            handlers[i] = null;
+        }
+        count = 0;
+    }
+
+    /**
+     * @return the CPU the thread is bound to, or -1 if not bound.
+     */
+    public int cpuId() {
+        return cpuId;
+    }
+
+    public boolean isAlive() {
+        Thread t = thread;
+        return t != null && t.isAlive();
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Stop the thread, waiting for it to finish unless called by the event loop, and close the handlers.
+     */
+    @Override
+    public void close() {
+        Thread t;
+        synchronized (this) {
+            if (closed)
+                return;
+            closed = true;
+            t = thread;
+        }
+        pauser.unpause();
+        if (t == null) {
+            closeHandlers();
+        } else if (t != Thread.currentThread()) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "EventLoop{name='" + name + "', alive=" + isAlive() + '}';
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.threads;
+
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.core.util.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Measures stalls of the JVM and OS by repeatedly parking for a short time and recording how much longer than
+ * that the thread took to wake, in the style of jHiccup. If your own latency spikes line up with these, the
+ * cause is outside your code.
+ * <p>
+ * The samples are recorded into a Histogram which is summarised in a Snapshot at the end of each interval,
+ * with the number and duration of any garbage collections in that interval. Parking for 1 ms at a time costs
+ * well under 1% of a core.
+ */
+public class HiccupMonitor implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(HiccupMonitor.class);
+    private static final String GC_NOTIFICATION = "com.sun.management.gc.notification";
+
+    private final long resolutionNS;
+    private final long intervalNS;
+    private final Consumer<Snapshot> listener;
+    // the end time and maximum stall of recent intervals.
+    private final AtomicLongArray historyEnd;
+    private final AtomicLongArray historyMax;
+    private final AtomicLong gcCount = new AtomicLong();
+    private final AtomicLong gcTimeMS = new AtomicLong();
+    private final NotificationListener gcListener = this::onNotification;
+    private final Thread thread;
+    private Histogram histogram = new Histogram(42, 4);
+    private Histogram spare = new Histogram(42, 4);
+    private volatile long currentMax = 0;
+    private volatile Snapshot lastSnapshot = null;
+    private volatile String lastGcName = null;
+    private volatile boolean closed = false;
+    private int historyIndex = 0;
+
+    /**
+     * @param resolution       time to park for each sample
+     * @param interval         time between snapshots
+     * @param timeUnit         of resolution and interval
+     * @param historyIntervals the number of intervals to keep a maximum stall for
+     * @param listener         called with each snapshot on the monitor thread, or null
+     */
+    public HiccupMonitor(long resolution, long interval, TimeUnit timeUnit, int historyIntervals, Consumer<Snapshot> listener) {
+        this.resolutionNS = timeUnit.toNanos(resolution);
+        this.intervalNS = timeUnit.toNanos(interval);
+        if (resolutionNS <= 0 || intervalNS < resolutionNS || historyIntervals < 1)
+            throw new IllegalArgumentException();
+        this.listener = listener;
+        this.historyEnd = new AtomicLongArray(historyIntervals);
+        this.historyMax = new AtomicLongArray(historyIntervals);
+        thread = new Thread(this::run, "hiccup-monitor");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * @return a monitor sampling every millisecond with one second snapshots and a minute of history.
+     */
+    public static HiccupMonitor start1ms() {
+        HiccupMonitor monitor = new HiccupMonitor(1, 1000, TimeUnit.MILLISECONDS, 60, null);
+        monitor.start();
+        return monitor;
+    }
+
+    public void start() {
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans())
+            if (bean instanceof NotificationEmitter)
+                ((NotificationEmitter) bean).addNotificationListener(gcListener, null, null);
+        thread.start();
+    }
+
+    private void onNotification(Notification notification, Object handback) {
+        if (!GC_NOTIFICATION.equals(notification.getType()))
+            return;
+        CompositeData info = (CompositeData) notification.getUserData();
+        CompositeData gcInfo = (CompositeData) info.get("gcInfo");
+        gcCount.incrementAndGet();
+        gcTimeMS.addAndGet((Long) gcInfo.get("duration"));
+        lastGcName = (String) info.get("gcName");
+    }
+
+    private void run() {
+        try {
+            long intervalStart = System.nanoTime();
+            long intervalStartMS = System.currentTimeMillis();
+            long prevGcCount = 0, prevGcTime = 0;
+            while (!closed) {
+                long start = System.nanoTime();
+                LockSupport.parkNanos(resolutionNS);
+                long end = System.nanoTime();
+                long stall = Math.max(0, end - start - resolutionNS);
+                histogram.sample(stall + 1);
+                if (stall > currentMax)
+                    currentMax = stall;
+
+                if (end - intervalStart >= intervalNS) {
+                    long gcCount = this.gcCount.get(), gcTime = gcTimeMS.get();
+                    long nowMS = System.currentTimeMillis();
+                    Snapshot snapshot = new Snapshot(intervalStartMS, nowMS, histogram, currentMax,
+                            gcCount - prevGcCount, gcTime - prevGcTime, gcCount > prevGcCount ? lastGcName : null);
+                    historyEnd.set(historyIndex, nowMS);
+                    historyMax.set(historyIndex, currentMax);
+                    historyIndex = (historyIndex + 1) % historyEnd.length();
+                    // swap rather than allocate a new histogram.
+                    Histogram h = histogram;
+                    histogram = spare;
+                    spare = h;
+                    histogram.reset();
+                    currentMax = 0;
+                    prevGcCount = gcCount;
+                    prevGcTime = gcTime;
+                    intervalStart = end;
+                    intervalStartMS = nowMS;
+                    lastSnapshot = snapshot;
+                    if (listener != null)
+                        listener.accept(snapshot);
+                }
+            }
+        } catch (Throwable t) {
+            LOG.error("Hiccup monitor died", t);
+        }
+    }
+
+    /**
+     * @return a summary of the last complete interval or null if there hasn't been one yet.
+     */
+    public Snapshot lastSnapshot() {
+        return lastSnapshot;
+    }
+
+    /**
+     * The maximum stall seen in recent intervals, up to the history kept, and the interval in progress.
+     *
+     * @param lastMS period to look back in milli-seconds
+     * @return the stall in nano-seconds
+     */
+    public long maxStallNS(long lastMS) {
+        long since = System.currentTimeMillis() - lastMS;
+        long max = currentMax;
+        for (int i = 0; i < historyEnd.length(); i++)
+            // an interval which ended in the period overlaps it.
+            if (historyEnd.get(i) > since)
+                max = Math.max(max, historyMax.get(i));
+        return max;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (bean instanceof NotificationEmitter) {
+                try {
+                    ((NotificationEmitter) bean).removeNotificationListener(gcListener);
+                } catch (ListenerNotFoundException ignored) {
+                }
+            }
+        }
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * A summary of one interval. Times are in nano-seconds unless stated.
+     */
+    public static final class Snapshot {
+        private final long startMS, endMS;
+        private final long samples;
+        private final long p50, p99, p999, max;
+        private final long gcCount, gcTimeMS;
+        private final String gcName;
+
+        Snapshot(long startMS, long endMS, Histogram histogram, long max, long gcCount, long gcTimeMS, String gcName) {
+            this.startMS = startMS;
+            this.endMS = endMS;
+            this.samples = histogram.totalCount();
+            // samples were recorded as stall + 1 as the histogram starts at 1.
+            this.p50 = (long) histogram.percentile(0.5) - 1;
+            this.p99 = (long) histogram.percentile(0.99) - 1;
+            this.p999 = (long) histogram.percentile(0.999) - 1;
+            this.max = max;
+            this.gcCount = gcCount;
+            this.gcTimeMS = gcTimeMS;
+            this.gcName = gcName;
+        }
+
+        public long startMS() {
+            return startMS;
+        }
+
+        public long endMS() {
+            return endMS;
+        }
+
+        public long samples() {
+            return samples;
+        }
+
+        public long p50() {
+            return p50;
+        }
+
+        public long p99() {
+            return p99;
+        }
+
+        public long p999() {
+            return p999;
+        }
+
+        public long max() {
+            return max;
+        }
+
+        /**
+         * @return the number of garbage collections in the interval.
+         */
+        public long gcCount() {
+            return gcCount;
+        }
+
+        public long gcTimeMS() {
+            return gcTimeMS;
+        }
+
+        /**
+         * @return the name of the last collector to run in the interval or null if there was no GC.
+         */
+        public String gcName() {
+            return gcName;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot{" +
+                    "samples=" + samples +
+                    ", p50=" + p50 / 1000 + "us" +
+                    ", p99=" + p99 / 1000 + "us" +
+                    ", p99.9=" + p999 / 1000 + "us" +
+                    ", max=" + max / 1000 + "us" +
+                    ", gcCount=" + gcCount +
+                    ", gcTimeMS=" + gcTimeMS +
+                    (gcName == null ? "" : ", gcName=" + gcName) +
+                    '}';
+        }
+    }
+}
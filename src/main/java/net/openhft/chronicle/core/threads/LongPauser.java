@@ -0,0 +1,116 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.threads;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Busy spins, then yields, then parks for longer and longer up to a maximum.
+ * <p>
+ * e.g. new LongPauser(1000, 200, 250, 20_000, TimeUnit.MICROSECONDS) spins for 1000 pauses, yields for
+ * 200 more, then parks for 250 us, 500 us, 1 ms ... up to 20 ms until reset() or unpause()
+ */
+public class LongPauser implements TimingPauser {
+    private final int minBusy;
+    private final int minCount;
+    private final long minPauseTimeNS;
+    private final long maxPauseTimeNS;
+    private volatile Thread thread = null;
+    private int count = 0;
+    private long pauseTimeNS;
+    private long timePaused = 0;
+    private volatile long countPaused = 0;
+    private long timeStart = 0;
+
+    /**
+     * @param minBusy      pauses to spin for.
+     * @param minCount     pauses to yield for after spinning.
+     * @param minPauseTime the first time to park for.
+     * @param maxPauseTime the longest time to park for.
+     * @param timeUnit     of the pause times.
+     */
+    public LongPauser(int minBusy, int minCount, long minPauseTime, long maxPauseTime, TimeUnit timeUnit) {
+        if (minBusy < 0 || minCount < 0 || minPauseTime <= 0 || maxPauseTime < minPauseTime)
+            throw new IllegalArgumentException();
+        this.minBusy = minBusy;
+        this.minCount = minCount;
+        this.minPauseTimeNS = timeUnit.toNanos(minPauseTime);
+        this.maxPauseTimeNS = timeUnit.toNanos(maxPauseTime);
+        pauseTimeNS = minPauseTimeNS;
+    }
+
+    @Override
+    public void reset() {
+        pauseTimeNS = minPauseTimeNS;
+        count = 0;
+        timeStart = 0;
+    }
+
+    @Override
+    public void pause() {
+        ++count;
+        if (count <= minBusy)
+            return;
+        if (count <= minBusy + minCount) {
+            Thread.yield();
+            countPaused++;
+            return;
+        }
+        park(pauseTimeNS);
+        pauseTimeNS = Math.min(maxPauseTimeNS, pauseTimeNS * 2);
+    }
+
+    @Override
+    public void pause(long timeout, TimeUnit timeUnit) throws TimeoutException {
+        if (count >= minBusy) {
+            long now = System.nanoTime();
+            if (timeStart == 0)
+                timeStart = now;
+            else if (now - timeStart > timeUnit.toNanos(timeout))
+                throw new TimeoutException();
+        }
+        pause();
+    }
+
+    private void park(long nanos) {
+        long start = System.nanoTime();
+        // kept so an unpause() before the park wakes it immediately.
+        thread = Thread.currentThread();
+        LockSupport.parkNanos(this, nanos);
+        timePaused += System.nanoTime() - start;
+        countPaused++;
+    }
+
+    @Override
+    public void unpause() {
+        Thread thread = this.thread;
+        if (thread != null)
+            LockSupport.unpark(thread);
+    }
+
+    @Override
+    public long timePaused() {
+        return timePaused / 1_000_000;
+    }
+
+    @Override
+    public long countPaused() {
+        return countPaused;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.threads;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Parks for a fixed number of milli-seconds on every pause, for loops where latency doesn't matter.
+ */
+public class MilliPauser implements Pauser {
+    private final long pauseTimeMS;
+    private volatile Thread thread = null;
+    private long timePaused = 0;
+    private volatile long countPaused = 0;
+
+    public MilliPauser(long pauseTimeMS) {
+        if (pauseTimeMS <= 0)
+            throw new IllegalArgumentException("pauseTimeMS: " + pauseTimeMS);
+        this.pauseTimeMS = pauseTimeMS;
+    }
+
+    public long pauseTimeMS() {
+        return pauseTimeMS;
+    }
+
+    @Override
+    public void reset() {
+    }
+
+    @Override
+    public void pause() {
+        long start = System.nanoTime();
+        // kept so an unpause() before the park wakes it immediately.
+        thread = Thread.currentThread();
+        LockSupport.parkNanos(this, pauseTimeMS * 1_000_000);
+        timePaused += System.nanoTime() - start;
+        countPaused++;
+    }
+
+    @Override
+    public void unpause() {
+        Thread thread = this.thread;
+        if (thread != null)
+            LockSupport.unpark(thread);
+    }
+
+    @Override
+    public long timePaused() {
+        return timePaused / 1_000_000;
+    }
+
+    @Override
+    public long countPaused() {
+        return countPaused;
+    }
+}
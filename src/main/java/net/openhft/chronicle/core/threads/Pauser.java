@@ -0,0 +1,50 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.threads;
+
+/**
+ * A strategy for waiting when a busy loop has nothing to do, trading CPU for latency.
+ * <p>
+ * The loop calls pause() when idle and reset() when it does some work. Another thread can call unpause()
+ * to wake a paused thread early.
+ */
+public interface Pauser {
+    /**
+     * Called when there was work to do, so the next pause starts from the shortest wait.
+     */
+    void reset();
+
+    /**
+     * Wait a little, longer the more times this is called without a reset()
+     */
+    void pause();
+
+    /**
+     * Wake the pausing thread if it is waiting. Can be called from any thread.
+     */
+    void unpause();
+
+    /**
+     * @return the total time spent waiting in milli-seconds, not including busy spinning.
+     */
+    long timePaused();
+
+    /**
+     * @return the number of times the thread waited by yielding or parking.
+     */
+    long countPaused();
+}
@@ -0,0 +1,270 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.threads;
+
+import net.openhft.chronicle.core.Hasher;
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.io.Closeable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A sampling profiler which can be left running in production. A daemon thread takes the stack trace of each
+ * selected thread at a fixed rate and counts the samples by stack, and by top frame, in tables of a fixed
+ * size, so the memory used is bounded however long it runs.
+ * <p>
+ * Stacks are trimmed of JDK frames as Jvm.trimStackTrace does and limited to maxFrames. Samples which don't
+ * fit in a full table are counted as dropped.
+ */
+public class StackSampler implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(StackSampler.class);
+
+    private final long intervalNS;
+    private final int maxFrames;
+    private final int maxStacks;
+    private final Hasher hasher = new Hasher();
+    // open addressing tables, a slot is free if its stack is null.
+    private final long[] stackHashes;
+    private final long[] stackCounts;
+    private final StackTraceElement[][] stacks;
+    private final long[] frameCounts;
+    private final StackTraceElement[] frames;
+    private final Thread thread;
+    private volatile Thread[] threads = {};
+    private volatile boolean closed = false;
+    private int stackEntries = 0, frameEntries = 0;
+    private long samples = 0, dropped = 0;
+
+    /**
+     * @param interval  between samples of each thread
+     * @param timeUnit  of the interval
+     * @param maxFrames the number of frames to keep from the top of each stack
+     * @param maxStacks the number of distinct stacks and top frames which can be counted
+     */
+    public StackSampler(long interval, TimeUnit timeUnit, int maxFrames, int maxStacks) {
+        if (interval <= 0 || maxFrames < 1 || maxStacks < 1)
+            throw new IllegalArgumentException();
+        this.intervalNS = timeUnit.toNanos(interval);
+        this.maxFrames = maxFrames;
+        this.maxStacks = maxStacks;
+        // at most half full so probing always finds a free slot.
+        int capacity = Integer.highestOneBit(maxStacks * 2 - 1) << 1;
+        stackHashes = new long[capacity];
+        stackCounts = new long[capacity];
+        stacks = new StackTraceElement[capacity][];
+        frameCounts = new long[capacity];
+        frames = new StackTraceElement[capacity];
+        thread = new Thread(this::run, "stack-sampler");
+        thread.setDaemon(true);
+    }
+
+    public synchronized void addThread(Thread t) {
+        Thread[] threads = Arrays.copyOf(this.threads, this.threads.length + 1);
+        threads[threads.length - 1] = t;
+        this.threads = threads;
+    }
+
+    public synchronized void removeThread(Thread t) {
+        Thread[] threads = this.threads;
+        for (int i = 0; i < threads.length; i++) {
+            if (threads[i] == t) {
+                Thread[] threads2 = new Thread[threads.length - 1];
+                System.arraycopy(threads, 0, threads2, 0, i);
+                System.arraycopy(threads, i + 1, threads2, i, threads2.length - i);
+                this.threads = threads2;
+                return;
+            }
+        }
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    private void run() {
+        try {
+            while (!closed) {
+                long next = System.nanoTime() + intervalNS;
+                for (Thread t : threads) {
+                    if (!t.isAlive())
+                        continue;
+                    StackTraceElement[] stes = t.getStackTrace();
+                    if (stes.length > 0)
+                        sample(stes);
+                }
+                long delay = next - System.nanoTime();
+                if (delay > 0)
+                    LockSupport.parkNanos(delay);
+            }
+        } catch (Throwable t) {
+            LOG.error("Stack sampler died", t);
+        }
+    }
+
+    /**
+     * Count one stack trace.
+     *
+     * @param stes stack trace elements with the top of the stack first
+     */
+    public synchronized void sample(StackTraceElement... stes) {
+        samples++;
+        int first = Jvm.trimFirst(stes);
+        int last = Math.min(Jvm.trimLast(first, stes), first + maxFrames - 1);
+
+        hasher.reset();
+        for (int i = first; i <= last; i++)
+            addFrame(stes[i]);
+        long hash = hasher.hash64();
+        int mask = stacks.length - 1;
+        int slot = (int) hash & mask;
+        for (; ; slot = (slot + 1) & mask) {
+            StackTraceElement[] stack = stacks[slot];
+            if (stack == null) {
+                if (stackEntries >= maxStacks) {
+                    dropped++;
+                    return;
+                }
+                stackEntries++;
+                stacks[slot] = Arrays.copyOfRange(stes, first, last + 1);
+                stackHashes[slot] = hash;
+                stackCounts[slot] = 1;
+                break;
+            }
+            if (stackHashes[slot] == hash && sameFrames(stack, stes, first, last)) {
+                stackCounts[slot]++;
+                break;
+            }
+        }
+
+        StackTraceElement top = stes[first];
+        hasher.reset();
+        addFrame(top);
+        slot = (int) hasher.hash64() & mask;
+        for (; ; slot = (slot + 1) & mask) {
+            StackTraceElement frame = frames[slot];
+            if (frame == null) {
+                if (frameEntries >= maxStacks)
+                    return;
+                frameEntries++;
+                frames[slot] = top;
+                frameCounts[slot] = 1;
+                return;
+            }
+            if (frame.equals(top)) {
+                frameCounts[slot]++;
+                return;
+            }
+        }
+    }
+
+    private void addFrame(StackTraceElement ste) {
+        hasher.add(ste.getClassName()).add(ste.getMethodName()).add(ste.getLineNumber());
+    }
+
+    private static boolean sameFrames(StackTraceElement[] stack, StackTraceElement[] stes, int first, int last) {
+        if (stack.length != last - first + 1)
+            return false;
+        for (int i = 0; i < stack.length; i++)
+            if (!stack[i].equals(stes[first + i]))
+                return false;
+        return true;
+    }
+
+    public synchronized long samples() {
+        return samples;
+    }
+
+    /**
+     * @return the number of samples of stacks which didn't fit in the table.
+     */
+    public synchronized long dropped() {
+        return dropped;
+    }
+
+    public synchronized void reset() {
+        Arrays.fill(stacks, null);
+        Arrays.fill(stackCounts, 0);
+        Arrays.fill(frames, null);
+        Arrays.fill(frameCounts, 0);
+        stackEntries = frameEntries = 0;
+        samples = dropped = 0;
+    }
+
+    /**
+     * Write the top frames and then the stacks, most sampled first.
+     *
+     * @param filename to write to
+     * @throws IOException if the file couldn't be written
+     */
+    public void dump(String filename) throws IOException {
+        try (Writer writer = new FileWriter(filename)) {
+            writer.write(report());
+        }
+    }
+
+    /**
+     * @return the top frames and then the stacks, most sampled first.
+     */
+    public synchronized String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("samples: ").append(samples).append(", dropped: ").append(dropped).append('\n');
+        sb.append("\ntop frames\n");
+        for (int slot : sortedSlots(frameCounts)) {
+            if (frames[slot] == null)
+                break;
+            appendCount(sb, frameCounts[slot]).append(frames[slot]).append('\n');
+        }
+        sb.append("\nstacks\n");
+        for (int slot : sortedSlots(stackCounts)) {
+            if (stacks[slot] == null)
+                break;
+            appendCount(sb, stackCounts[slot]);
+            Jvm.trimStackTrace(sb, stacks[slot]);
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private StringBuilder appendCount(StringBuilder sb, long count) {
+        long permille = samples == 0 ? 0 : count * 1000 / samples;
+        return sb.append(count).append(' ').append(permille / 10).append('.').append(permille % 10).append("% ");
+    }
+
+    private static int[] sortedSlots(long[] counts) {
+        Integer[] slots = new Integer[counts.length];
+        for (int i = 0; i < slots.length; i++)
+            slots[i] = i;
+        Arrays.sort(slots, (a, b) -> Long.compare(counts[b], counts[a]));
+        int[] sorted = new int[slots.length];
+        for (int i = 0; i < sorted.length; i++)
+            sorted[i] = slots[i];
+        return sorted;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(thread);
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.threads;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A Pauser which can give up after a period with no work.
+ */
+public interface TimingPauser extends Pauser {
+    /**
+     * Pause, or throw if it has been longer than the timeout since the pauser stopped busy spinning after the
+     * last reset(). The timer starts on the first pause after the busy spinning, so spinning doesn't read the
+     * clock, and the time spent spinning is not counted.
+     *
+     * @param timeout  since the busy spinning ended
+     * @param timeUnit of the timeout
+     * @throws TimeoutException if the timeout has passed.
+     */
+    void pause(long timeout, TimeUnit timeUnit) throws TimeoutException;
+}
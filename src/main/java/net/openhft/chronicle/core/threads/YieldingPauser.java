@@ -0,0 +1,95 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.threads;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Busy spins for a number of pauses, then yields the CPU on each pause.
+ */
+public class YieldingPauser implements TimingPauser {
+    private final int minBusy;
+    private int count = 0;
+    private long timePaused = 0;
+    private volatile long countPaused = 0;
+    private long yieldStart = 0;
+    private long timeStart = 0;
+
+    /**
+     * @param minBusy the number of pauses to spin for before yielding.
+     */
+    public YieldingPauser(int minBusy) {
+        this.minBusy = minBusy;
+    }
+
+    @Override
+    public void reset() {
+        checkYieldTime();
+        count = 0;
+        timeStart = 0;
+    }
+
+    @Override
+    public void pause() {
+        ++count;
+        if (count <= minBusy)
+            return;
+        yield0();
+    }
+
+    @Override
+    public void pause(long timeout, TimeUnit timeUnit) throws TimeoutException {
+        ++count;
+        if (count <= minBusy)
+            return;
+        if (timeStart == 0)
+            timeStart = System.nanoTime();
+        else if (System.nanoTime() - timeStart > timeUnit.toNanos(timeout))
+            throw new TimeoutException();
+        yield0();
+    }
+
+    private void yield0() {
+        if (yieldStart == 0)
+            yieldStart = System.nanoTime();
+        Thread.yield();
+        countPaused++;
+    }
+
+    private void checkYieldTime() {
+        if (yieldStart > 0) {
+            timePaused += System.nanoTime() - yieldStart;
+            yieldStart = 0;
+        }
+    }
+
+    @Override
+    public void unpause() {
+        // nothing to wake.
+    }
+
+    @Override
+    public long timePaused() {
+        return timePaused / 1_000_000;
+    }
+
+    @Override
+    public long countPaused() {
+        return countPaused;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.OS;
+
+import java.nio.ByteOrder;
+
+/**
+ * Search native memory or a byte[] for a byte, or any of up to four bytes, eight bytes at a time.
+ * <p>
+ * Each word is compared with the byte repeated in every lane, and the lanes which are zero after an xor are
+ * found without branching on each byte, e.g. to split records on '\n' or to find a zero terminator.
+ */
+public enum ByteSearch {
+    ;
+    private static final Memory MEMORY = OS.memory();
+    private static final long BYTE_BASE = MEMORY.arrayBaseOffset(byte[].class);
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+    private static final long LOW_BYTES = 0x0101010101010101L;
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+    /**
+     * @return the byte repeated in all eight lanes of a long.
+     */
+    private static long repeat(byte b) {
+        return (b & 0xFFL) * LOW_BYTES;
+    }
+
+    /**
+     * @return 0x80 in each lane which is zero and 0 in every other lane.
+     */
+    private static long zeroLanes(long word) {
+        long t = (word & LOW_BITS) + LOW_BITS;
+        return ~(t | word | LOW_BITS);
+    }
+
+    private static int firstLane(long lanes) {
+        return (LITTLE_ENDIAN ? Long.numberOfTrailingZeros(lanes) : Long.numberOfLeadingZeros(lanes)) >>> 3;
+    }
+
+    /**
+     * @param address of the first byte
+     * @param length  number of bytes to search
+     * @param b       to find
+     * @return the offset from address of the first b or -1 if not found.
+     */
+    public static long indexOf(long address, long length, byte b) {
+        return indexOf(null, address, length, b, b, b, b);
+    }
+
+    /**
+     * @return the index of the first b between from and to, or -1 if not found.
+     */
+    public static int indexOf(byte[] bytes, int from, int to, byte b) {
+        checkRange(bytes, from, to);
+        long index = indexOf(bytes, BYTE_BASE + from, to - from, b, b, b, b);
+        return index < 0 ? -1 : (int) (from + index);
+    }
+
+    /**
+     * @return the offset from address of the first b0 or b1, or -1 if not found.
+     */
+    public static long indexOfAny(long address, long length, byte b0, byte b1) {
+        return indexOf(null, address, length, b0, b1, b1, b1);
+    }
+
+    /**
+     * @return the offset from address of the first b0, b1 or b2, or -1 if not found.
+     */
+    public static long indexOfAny(long address, long length, byte b0, byte b1, byte b2) {
+        return indexOf(null, address, length, b0, b1, b2, b2);
+    }
+
+    /**
+     * @return the offset from address of the first b0, b1, b2 or b3, or -1 if not found.
+     */
+    public static long indexOfAny(long address, long length, byte b0, byte b1, byte b2, byte b3) {
+        return indexOf(null, address, length, b0, b1, b2, b3);
+    }
+
+    /**
+     * @return the index of the first b0 or b1 between from and to, or -1 if not found.
+     */
+    public static int indexOfAny(byte[] bytes, int from, int to, byte b0, byte b1) {
+        return indexOfAny(bytes, from, to, b0, b1, b1, b1);
+    }
+
+    /**
+     * @return the index of the first b0, b1 or b2 between from and to, or -1 if not found.
+     */
+    public static int indexOfAny(byte[] bytes, int from, int to, byte b0, byte b1, byte b2) {
+        return indexOfAny(bytes, from, to, b0, b1, b2, b2);
+    }
+
+    /**
+     * @return the index of the first b0, b1, b2 or b3 between from and to, or -1 if not found.
+     */
+    public static int indexOfAny(byte[] bytes, int from, int to, byte b0, byte b1, byte b2, byte b3) {
+        checkRange(bytes, from, to);
+        long index = indexOf(bytes, BYTE_BASE + from, to - from, b0, b1, b2, b3);
+        return index < 0 ? -1 : (int) (from + index);
+    }
+
+    /**
+     * @param address of the first byte
+     * @param length  number of bytes to search
+     * @param b       to count
+     * @return the number of times b appears.
+     */
+    public static long count(long address, long length, byte b) {
+        return count(null, address, length, b);
+    }
+
+    /**
+     * @return the number of times b appears between from and to.
+     */
+    public static int count(byte[] bytes, int from, int to, byte b) {
+        checkRange(bytes, from, to);
+        return (int) count(bytes, BYTE_BASE + from, to - from, b);
+    }
+
+    private static void checkRange(byte[] bytes, int from, int to) {
+        if (from < 0 || from > to || to > bytes.length)
+            throw new ArrayIndexOutOfBoundsException("from: " + from + " to: " + to + " length: " + bytes.length);
+    }
+
+    private static long indexOf(Object base, long offset, long length, byte b0, byte b1, byte b2, byte b3) {
+        long r0 = repeat(b0), r1 = repeat(b1), r2 = repeat(b2), r3 = repeat(b3);
+        long i = 0;
+        for (; i <= length - 8; i += 8) {
+            long word = MEMORY.readLong(base, offset + i);
+            long lanes = zeroLanes(word ^ r0) | zeroLanes(word ^ r1) | zeroLanes(word ^ r2) | zeroLanes(word ^ r3);
+            if (lanes != 0)
+                return i + firstLane(lanes);
+        }
+        for (; i < length; i++) {
+            byte b = MEMORY.readByte(base, offset + i);
+            if (b == b0 || b == b1 || b == b2 || b == b3)
+                return i;
+        }
+        return -1;
+    }
+
+    private static long count(Object base, long offset, long length, byte b) {
+        long r = repeat(b);
+        long count = 0;
+        long i = 0;
+        for (; i <= length - 8; i += 8)
+            count += Long.bitCount(zeroLanes(MEMORY.readLong(base, offset + i) ^ r));
+        for (; i < length; i++)
+            if (MEMORY.readByte(base, offset + i) == b)
+                count++;
+        return count;
+    }
+}
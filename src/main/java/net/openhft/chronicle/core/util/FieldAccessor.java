@@ -0,0 +1,240 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import net.openhft.chronicle.core.ClassLocal;
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.OS;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read and write an instance field, including a private or final one, through its offset rather than reflection.
+ * <p>
+ * The offsets of a class's fields are looked up once and cached in a ClassLocal.
+ * <pre>
+ * static final FieldAccessor COUNT = FieldAccessor.of(AbstractStringBuilder.class, "count");
+ * int count = COUNT.getInt(sb);
+ * </pre>
+ * The typed methods don't check the type of the field or the object, except when assertions are enabled, so
+ * use the method which matches the type of the field.
+ */
+public final class FieldAccessor {
+    private static final Memory MEMORY = OS.memory();
+    private static final ClassLocal<Map<String, FieldAccessor>> ACCESSORS = ClassLocal.withInitial(FieldAccessor::accessorsFor0);
+
+    private final Field field;
+    private final Class<?> type;
+    private final long offset;
+
+    private FieldAccessor(Field field) {
+        this.field = field;
+        this.type = field.getType();
+        this.offset = MEMORY.getFieldOffset(field);
+    }
+
+    private static Map<String, FieldAccessor> accessorsFor0(Class<?> clazz) {
+        Map<String, FieldAccessor> map = new LinkedHashMap<>();
+        for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()))
+                    continue;
+                // a field in a sub class hides one of the same name in a super class.
+                map.putIfAbsent(field.getName(), new FieldAccessor(field));
+            }
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * @param clazz to find the field in, or one of its super classes
+     * @param name  of the instance field
+     * @return the accessor
+     * @throws IllegalArgumentException if there is no such instance field.
+     */
+    public static FieldAccessor of(Class<?> clazz, String name) throws IllegalArgumentException {
+        FieldAccessor accessor = ACCESSORS.get(clazz).get(name);
+        if (accessor == null)
+            throw new IllegalArgumentException("No instance field " + name + " in " + clazz.getName());
+        return accessor;
+    }
+
+    /**
+     * @param clazz to get the fields of
+     * @return accessors for all the instance fields of a class and its super classes.
+     */
+    public static List<FieldAccessor> accessorsFor(Class<?> clazz) {
+        return new ArrayList<>(ACCESSORS.get(clazz).values());
+    }
+
+    public Field field() {
+        return field;
+    }
+
+    public String name() {
+        return field.getName();
+    }
+
+    public Class<?> type() {
+        return type;
+    }
+
+    public long offset() {
+        return offset;
+    }
+
+    private boolean check(Object o, Class<?> expected) {
+        if (type != expected && !(expected == Object.class && !type.isPrimitive()))
+            throw new AssertionError(field + " is not a " + expected);
+        if (!field.getDeclaringClass().isInstance(o))
+            throw new AssertionError(o.getClass() + " doesn't have " + field);
+        return true;
+    }
+
+    public boolean getBoolean(Object o) {
+        assert check(o, boolean.class);
+        return MEMORY.readByte(o, offset) != 0;
+    }
+
+    public void setBoolean(Object o, boolean b) {
+        assert check(o, boolean.class);
+        MEMORY.writeByte(o, offset, (byte) (b ? 1 : 0));
+    }
+
+    public byte getByte(Object o) {
+        assert check(o, byte.class);
+        return MEMORY.readByte(o, offset);
+    }
+
+    public void setByte(Object o, byte b) {
+        assert check(o, byte.class);
+        MEMORY.writeByte(o, offset, b);
+    }
+
+    public char getChar(Object o) {
+        assert check(o, char.class);
+        return (char) MEMORY.readShort(o, offset);
+    }
+
+    public void setChar(Object o, char ch) {
+        assert check(o, char.class);
+        MEMORY.writeShort(o, offset, (short) ch);
+    }
+
+    public short getShort(Object o) {
+        assert check(o, short.class);
+        return MEMORY.readShort(o, offset);
+    }
+
+    public void setShort(Object o, short s) {
+        assert check(o, short.class);
+        MEMORY.writeShort(o, offset, s);
+    }
+
+    public int getInt(Object o) {
+        assert check(o, int.class);
+        return MEMORY.readInt(o, offset);
+    }
+
+    public void setInt(Object o, int i) {
+        assert check(o, int.class);
+        MEMORY.writeInt(o, offset, i);
+    }
+
+    public int getVolatileInt(Object o) {
+        assert check(o, int.class);
+        return MEMORY.readVolatileInt(o, offset);
+    }
+
+    public void setOrderedInt(Object o, int i) {
+        assert check(o, int.class);
+        MEMORY.writeOrderedInt(o, offset, i);
+    }
+
+    public long getLong(Object o) {
+        assert check(o, long.class);
+        return MEMORY.readLong(o, offset);
+    }
+
+    public void setLong(Object o, long l) {
+        assert check(o, long.class);
+        MEMORY.writeLong(o, offset, l);
+    }
+
+    public long getVolatileLong(Object o) {
+        assert check(o, long.class);
+        return MEMORY.readVolatileLong(o, offset);
+    }
+
+    public void setOrderedLong(Object o, long l) {
+        assert check(o, long.class);
+        MEMORY.writeOrderedLong(o, offset, l);
+    }
+
+    public float getFloat(Object o) {
+        assert check(o, float.class);
+        return MEMORY.readFloat(o, offset);
+    }
+
+    public void setFloat(Object o, float f) {
+        assert check(o, float.class);
+        MEMORY.writeFloat(o, offset, f);
+    }
+
+    public double getDouble(Object o) {
+        assert check(o, double.class);
+        return MEMORY.readDouble(o, offset);
+    }
+
+    public void setDouble(Object o, double d) {
+        assert check(o, double.class);
+        MEMORY.writeDouble(o, offset, d);
+    }
+
+    public <T> T getObject(Object o) {
+        assert check(o, Object.class);
+        return MEMORY.getObject(o, offset);
+    }
+
+    public void setObject(Object o, Object value) {
+        assert check(o, Object.class);
+        assert value == null || type.isInstance(value) : value.getClass() + " is not a " + type;
+        MEMORY.setObject(o, offset, value);
+    }
+
+    public <T> T getVolatileObject(Object o) {
+        assert check(o, Object.class);
+        return MEMORY.getVolatileObject(o, offset);
+    }
+
+    public void setOrderedObject(Object o, Object value) {
+        assert check(o, Object.class);
+        assert value == null || type.isInstance(value) : value.getClass() + " is not a " + type;
+        MEMORY.setOrderedObject(o, offset, value);
+    }
+
+    @Override
+    public String toString() {
+        return "FieldAccessor{" + field + ", offset=" + offset + '}';
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import net.openhft.chronicle.core.values.LongValue;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed point decimals held as a long mantissa with a scale of decimal places, e.g. with a scale of 4,
+ * 1.2345 is held as 12345.
+ * <p>
+ * A FixedPoint is the context for values of one scale, and its methods work on the mantissas so values
+ * can be stored in a long field, an array or a LongValue off heap without allocation.
+ * <pre>
+ * FixedPoint price = FixedPoint.of(4);
+ * long mid = price.divide(price.add(bid, ask), 2, RoundingMode.HALF_EVEN);
+ * price.append(sb, mid);
+ * </pre>
+ * Operations which overflow a long throw an ArithmeticException. Multiply and divide only allocate when
+ * an intermediate value doesn't fit a long.
+ */
+public final class FixedPoint {
+    public static final int MAX_SCALE = NumberAppender.MAX_DECIMAL_PLACES;
+    private static final FixedPoint[] FIXED_POINTS = new FixedPoint[MAX_SCALE + 1];
+    private static final ThreadLocal<NumberParser> PARSER = ThreadLocal.withInitial(NumberParser::new);
+
+    static {
+        long factor = 1;
+        for (int i = 0; i <= MAX_SCALE; i++, factor *= 10)
+            FIXED_POINTS[i] = new FixedPoint(i, factor);
+    }
+
+    private final int scale;
+    private final long factor;
+
+    private FixedPoint(int scale, long factor) {
+        this.scale = scale;
+        this.factor = factor;
+    }
+
+    /**
+     * @param scale the number of decimal places from 0 to MAX_SCALE
+     * @return the FixedPoint for that scale.
+     */
+    public static FixedPoint of(int scale) {
+        if (scale < 0 || scale > MAX_SCALE)
+            throw new IllegalArgumentException("scale: " + scale);
+        return FIXED_POINTS[scale];
+    }
+
+    public int scale() {
+        return scale;
+    }
+
+    /**
+     * @return the mantissa of 1, i.e. 10^scale
+     */
+    public long factor() {
+        return factor;
+    }
+
+    /**
+     * Round a double half up as NumberAppender does, so fromDouble(1.005) with a scale of 2 is 101
+     *
+     * @param d to convert
+     * @return the mantissa.
+     * @throws ArithmeticException if the value is NaN or too large.
+     */
+    public long fromDouble(double d) throws ArithmeticException {
+        return NumberAppender.round(d, scale);
+    }
+
+    public double toDouble(long value) {
+        // the factor is exact so this is the nearest double when the value has 15 digits or less.
+        return value / (double) factor;
+    }
+
+    /**
+     * @param value to convert from another scale
+     * @param from  the scale of value
+     * @param mode  to round with if the scale is reduced
+     * @return the mantissa at this scale.
+     */
+    public long rescale(long value, FixedPoint from, RoundingMode mode) throws ArithmeticException {
+        if (from.scale == scale)
+            return value;
+        if (from.scale > scale)
+            return roundedDivide(value, FIXED_POINTS[from.scale - scale].factor, mode);
+        return Math.multiplyExact(value, FIXED_POINTS[scale - from.scale].factor);
+    }
+
+    public long add(long a, long b) throws ArithmeticException {
+        return Math.addExact(a, b);
+    }
+
+    public long subtract(long a, long b) throws ArithmeticException {
+        return Math.subtractExact(a, b);
+    }
+
+    /**
+     * Multiply two values of this scale, e.g. a price by a rate.
+     */
+    public long multiply(long a, long b, RoundingMode mode) throws ArithmeticException {
+        if (fitsProduct(a, b))
+            return roundedDivide(a * b, factor, mode);
+        return BigDecimal.valueOf(a).multiply(BigDecimal.valueOf(b))
+                .divide(BigDecimal.valueOf(factor), 0, mode).longValueExact();
+    }
+
+    /**
+     * Multiply a value by a whole number, e.g. a price by a quantity.
+     */
+    public long multiply(long a, long n) throws ArithmeticException {
+        return Math.multiplyExact(a, n);
+    }
+
+    /**
+     * Divide two values of this scale.
+     */
+    public long divide(long a, long b, RoundingMode mode) throws ArithmeticException {
+        if (fitsProduct(a, factor))
+            return roundedDivide(a * factor, b, mode);
+        return BigDecimal.valueOf(a).multiply(BigDecimal.valueOf(factor))
+                .divide(BigDecimal.valueOf(b), 0, mode).longValueExact();
+    }
+
+    /**
+     * Divide a value by a whole number, e.g. a notional by a quantity.
+     */
+    public long divideBy(long a, long n, RoundingMode mode) throws ArithmeticException {
+        return roundedDivide(a, n, mode);
+    }
+
+    private static boolean fitsProduct(long a, long b) {
+        long aa = Math.abs(a), ab = Math.abs(b);
+        if (((aa | ab) >>> 31) == 0)
+            return true;
+        long p = a * b;
+        return b != 0 && p / b == a && !(a == Long.MIN_VALUE && b == -1);
+    }
+
+    /**
+     * Divide rounding as BigDecimal would.
+     *
+     * @param n    numerator
+     * @param d    denominator
+     * @param mode rounding
+     * @return n / d rounded.
+     * @throws ArithmeticException on a divide by zero, or if the mode is UNNECESSARY and rounding is needed.
+     */
+    public static long roundedDivide(long n, long d, RoundingMode mode) throws ArithmeticException {
+        if (d == -1)
+            return Math.negateExact(n);
+        long q = n / d;
+        long r = n % d;
+        if (r == 0)
+            return q;
+        // the direction to round away from zero.
+        int sign = (n ^ d) < 0 ? -1 : 1;
+        boolean away;
+        switch (mode) {
+            case UP:
+                away = true;
+                break;
+            case DOWN:
+                away = false;
+                break;
+            case CEILING:
+                away = sign > 0;
+                break;
+            case FLOOR:
+                away = sign < 0;
+                break;
+            case HALF_UP:
+            case HALF_DOWN:
+            case HALF_EVEN: {
+                // compare the remainder with half the divisor without overflow.
+                long ar = Math.abs(r);
+                int cmp = Long.compareUnsigned(ar, Math.abs(d) - ar);
+                away = cmp > 0
+                        || cmp == 0 && (mode == RoundingMode.HALF_UP
+                        || mode == RoundingMode.HALF_EVEN && (q & 1) != 0);
+                break;
+            }
+            case UNNECESSARY:
+                throw new ArithmeticException("Rounding necessary");
+            default:
+                throw new AssertionError(mode);
+        }
+        return away ? q + sign : q;
+    }
+
+    /**
+     * Parse text such as 1.2345 rounding half away from zero to this scale.
+     *
+     * @param cs to parse
+     * @return the mantissa.
+     * @throws NumberFormatException if the text isn't a number in range.
+     */
+    public long parse(CharSequence cs) throws NumberFormatException {
+        NumberParser parser = PARSER.get();
+        if (!parser.parse(cs) || parser.end() != cs.length())
+            throw new NumberFormatException("Not a number: " + cs);
+        long value = parser.scaledValue(scale);
+        if (parser.overflow())
+            throw new NumberFormatException("Out of range: " + cs);
+        return value;
+    }
+
+    /**
+     * Take the value last parsed by a parser at this scale.
+     */
+    public long valueOf(NumberParser parser) {
+        return parser.scaledValue(scale);
+    }
+
+    public StringBuilder append(StringBuilder sb, long value) {
+        return NumberAppender.appendScaled(sb, value, scale);
+    }
+
+    /**
+     * @return the position after the text written.
+     */
+    public int append(char[] chars, int pos, long value) {
+        return NumberAppender.appendScaled(chars, pos, value, scale);
+    }
+
+    /**
+     * Write ASCII text to native memory.
+     *
+     * @return the address after the text written.
+     */
+    public long write(long address, long value) {
+        return NumberAppender.writeScaled(address, value, scale);
+    }
+
+    public String toString(long value) {
+        return append(new StringBuilder(24), value).toString();
+    }
+
+    public double getDouble(LongValue value) {
+        return toDouble(value.getValue());
+    }
+
+    public void setDouble(LongValue value, double d) {
+        value.setValue(fromDouble(d));
+    }
+
+    @Override
+    public String toString() {
+        return "FixedPoint{scale=" + scale + '}';
+    }
+}
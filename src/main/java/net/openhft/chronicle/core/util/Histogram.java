@@ -16,6 +16,7 @@
 
 package net.openhft.chronicle.core.util;
 
+import java.util.Arrays;
 import java.util.function.DoubleFunction;
 
 /**
@@ -141,14 +142,36 @@ public class Histogram {
     }
 
     private String p(double v) {
-        return v < 0.1 ? String.format("%.3f", v) :
-                v < 1 ? String.format("%.2f", v) :
-                        v < 10 ? String.format("%.1f", v) :
-                                v < 1000 ? Long.toString(Math.round(v)) :
-                                        String.format("%,d", Math.round(v / 10) * 10);
+        StringBuilder sb = new StringBuilder(16);
+        if (v < 0.1)
+            NumberAppender.append(sb, v, 3);
+        else if (v < 1)
+            NumberAppender.append(sb, v, 2);
+        else if (v < 10)
+            NumberAppender.append(sb, v, 1);
+        else if (v < 1000)
+            NumberAppender.append(sb, Math.round(v));
+        else
+            appendGrouped(sb, Math.round(v / 10) * 10);
+        return sb.toString();
+    }
+
+    private static void appendGrouped(StringBuilder sb, long value) {
+        int start = sb.length();
+        NumberAppender.append(sb, value);
+        for (int i = sb.length() - 3; i > start; i -= 3)
+            sb.insert(i, ',');
     }
 
     public long totalCount() {
         return totalCount;
     }
+
+    /**
+     * Clear all the samples so the histogram can be reused.
+     */
+    public void reset() {
+        Arrays.fill(sampleCount, 0);
+        totalCount = overRange = 0;
+    }
 }
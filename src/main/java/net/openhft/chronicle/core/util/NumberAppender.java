@@ -0,0 +1,373 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.OS;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Write numbers as decimal text into a StringBuilder, a char[] or native memory without creating garbage.
+ * <p>
+ * A double is written either to a fixed number of decimal places, rounding the text Double.toString gives
+ * half up as BigDecimal does, e.g. 1.005 is written as 1.01 to 2 places, or as the shortest text which reads
+ * back as the same double, in the format of Double.toString. Values with no fast path, e.g. 1e30 or NaN,
+ * fall back to the JDK.
+ */
+public enum NumberAppender {
+    ;
+    public static final int MAX_DECIMAL_PLACES = 18;
+    private static final Memory MEMORY = OS.memory();
+    private static final String LONG_MIN_VALUE = Long.toString(Long.MIN_VALUE);
+    private static final long[] POW10 = new long[MAX_DECIMAL_PLACES + 1];
+    // every power of ten up to 1e22 is exactly representable as a double.
+    private static final double[] POW10D = new double[23];
+    // larger scaled values fall back as an ulp is too large a fraction of a unit to round reliably.
+    private static final double MAX_SCALED = 1L << 46;
+    private static final double MAX_EXACT = 1L << 53;
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++)
+            POW10[i] = POW10[i - 1] * 10;
+        for (int i = 0; i < POW10D.length; i++)
+            POW10D[i] = i < POW10.length ? POW10[i] : POW10D[i - 1] * 10;
+    }
+
+    /**
+     * @param value to write
+     * @return the number of chars to write a long in decimal.
+     */
+    public static int length(long value) {
+        if (value < 0)
+            return value == Long.MIN_VALUE ? LONG_MIN_VALUE.length() : 1 + digits(-value);
+        return digits(value);
+    }
+
+    private static int digits(long value) {
+        int digits = 1;
+        while (digits < 19 && value >= POW10[digits])
+            digits++;
+        return digits;
+    }
+
+    public static StringBuilder append(StringBuilder sb, long value) {
+        if (value == Long.MIN_VALUE)
+            return sb.append(LONG_MIN_VALUE);
+        boolean negative = value < 0;
+        return appendDecimal(sb, negative, negative ? -value : value, 0);
+    }
+
+    /**
+     * @return the position after the text written.
+     */
+    public static int append(char[] chars, int pos, long value) {
+        if (value == Long.MIN_VALUE) {
+            LONG_MIN_VALUE.getChars(0, LONG_MIN_VALUE.length(), chars, pos);
+            return pos + LONG_MIN_VALUE.length();
+        }
+        boolean negative = value < 0;
+        return appendDecimal(chars, pos, negative, negative ? -value : value, 0);
+    }
+
+    /**
+     * Write ASCII text to native memory.
+     *
+     * @return the address after the text written.
+     */
+    public static long write(long address, long value) {
+        if (value == Long.MIN_VALUE)
+            return writeAscii(address, LONG_MIN_VALUE);
+        boolean negative = value < 0;
+        return writeDecimal(address, negative, negative ? -value : value, 0);
+    }
+
+    /**
+     * Append a fixed point value, e.g. appendScaled(sb, 12345, 2) appends 123.45
+     *
+     * @param sb            to append to
+     * @param scaled        the value times 10^decimalPlaces
+     * @param decimalPlaces between 0 and MAX_DECIMAL_PLACES
+     * @return sb
+     */
+    public static StringBuilder appendScaled(StringBuilder sb, long scaled, int decimalPlaces) {
+        checkDecimalPlaces(decimalPlaces);
+        if (scaled == Long.MIN_VALUE)
+            return sb.append(BigDecimal.valueOf(scaled, decimalPlaces).toPlainString());
+        boolean negative = scaled < 0;
+        return appendDecimal(sb, negative, negative ? -scaled : scaled, decimalPlaces);
+    }
+
+    /**
+     * @return the position after the text written.
+     */
+    public static int appendScaled(char[] chars, int pos, long scaled, int decimalPlaces) {
+        checkDecimalPlaces(decimalPlaces);
+        if (scaled == Long.MIN_VALUE)
+            return appendString(chars, pos, BigDecimal.valueOf(scaled, decimalPlaces).toPlainString());
+        boolean negative = scaled < 0;
+        return appendDecimal(chars, pos, negative, negative ? -scaled : scaled, decimalPlaces);
+    }
+
+    /**
+     * Write ASCII text to native memory.
+     *
+     * @return the address after the text written.
+     */
+    public static long writeScaled(long address, long scaled, int decimalPlaces) {
+        checkDecimalPlaces(decimalPlaces);
+        if (scaled == Long.MIN_VALUE)
+            return writeAscii(address, BigDecimal.valueOf(scaled, decimalPlaces).toPlainString());
+        boolean negative = scaled < 0;
+        return writeDecimal(address, negative, negative ? -scaled : scaled, decimalPlaces);
+    }
+
+    /**
+     * Append a double to a fixed number of decimal places, e.g. append(sb, 1.005, 2) appends 1.01
+     *
+     * @param sb            to append to
+     * @param value         to append
+     * @param decimalPlaces between 0 and MAX_DECIMAL_PLACES
+     * @return sb
+     */
+    public static StringBuilder append(StringBuilder sb, double value, int decimalPlaces) {
+        long scaled = scaled(value, decimalPlaces);
+        return scaled < 0
+                ? sb.append(slowFixed(value, decimalPlaces))
+                : appendDecimal(sb, isNegative(value) && scaled > 0, scaled, decimalPlaces);
+    }
+
+    /**
+     * @return the position after the text written.
+     */
+    public static int append(char[] chars, int pos, double value, int decimalPlaces) {
+        long scaled = scaled(value, decimalPlaces);
+        return scaled < 0
+                ? appendString(chars, pos, slowFixed(value, decimalPlaces))
+                : appendDecimal(chars, pos, isNegative(value) && scaled > 0, scaled, decimalPlaces);
+    }
+
+    /**
+     * Write ASCII text to native memory.
+     *
+     * @return the address after the text written.
+     */
+    public static long write(long address, double value, int decimalPlaces) {
+        long scaled = scaled(value, decimalPlaces);
+        return scaled < 0
+                ? writeAscii(address, slowFixed(value, decimalPlaces))
+                : writeDecimal(address, isNegative(value) && scaled > 0, scaled, decimalPlaces);
+    }
+
+    /**
+     * Append the shortest text which reads back as the same double, as Double.toString does.
+     *
+     * @param sb    to append to
+     * @param value to append
+     * @return sb
+     */
+    public static StringBuilder append(StringBuilder sb, double value) {
+        long places = shortest(value);
+        return places < 0
+                ? sb.append(value)
+                : appendDecimal(sb, isNegative(value), scaledOf(places), decimalPlacesOf(places));
+    }
+
+    /**
+     * @return the position after the text written.
+     */
+    public static int append(char[] chars, int pos, double value) {
+        long places = shortest(value);
+        return places < 0
+                ? appendString(chars, pos, Double.toString(value))
+                : appendDecimal(chars, pos, isNegative(value), scaledOf(places), decimalPlacesOf(places));
+    }
+
+    /**
+     * Write ASCII text to native memory.
+     *
+     * @return the address after the text written.
+     */
+    public static long write(long address, double value) {
+        long places = shortest(value);
+        return places < 0
+                ? writeAscii(address, Double.toString(value))
+                : writeDecimal(address, isNegative(value), scaledOf(places), decimalPlacesOf(places));
+    }
+
+    private static boolean isNegative(double value) {
+        return Double.doubleToRawLongBits(value) < 0;
+    }
+
+    private static void checkDecimalPlaces(int decimalPlaces) {
+        if (decimalPlaces < 0 || decimalPlaces > MAX_DECIMAL_PLACES)
+            throw new IllegalArgumentException("decimalPlaces: " + decimalPlaces);
+    }
+
+    /**
+     * @return the absolute value scaled by 10^decimalPlaces and rounded, or -1 if there is no fast path.
+     */
+    private static long scaled(double value, int decimalPlaces) {
+        checkDecimalPlaces(decimalPlaces);
+        double scaled = Math.abs(value) * POW10D[decimalPlaces];
+        // also false for NaN
+        if (!(scaled < MAX_SCALED))
+            return -1;
+        double floor = Math.floor(scaled);
+        double fraction = scaled - floor;
+        // scaled is within 2 ulp of the text of the double scaled, which only matters close to a half,
+        // e.g. 1.005 is a little less as a double.
+        if (Math.abs(fraction - 0.5) <= 2 * Math.ulp(scaled))
+            return -1;
+        return (long) floor + (fraction > 0.5 ? 1 : 0);
+    }
+
+    private static String slowFixed(double value, int decimalPlaces) {
+        if (Double.isNaN(value) || Double.isInfinite(value))
+            return Double.toString(value);
+        return slowRound(value, decimalPlaces).toPlainString();
+    }
+
+    private static BigDecimal slowRound(double value, int decimalPlaces) {
+        // round the text of the double, as the fast path does.
+        return new BigDecimal(Double.toString(value)).setScale(decimalPlaces, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Round as append(sb, value, decimalPlaces) does.
+     *
+     * @return the value times 10^decimalPlaces
+     * @throws ArithmeticException if the value is NaN or too large.
+     */
+    static long round(double value, int decimalPlaces) throws ArithmeticException {
+        long scaled = scaled(value, decimalPlaces);
+        if (scaled >= 0)
+            return isNegative(value) ? -scaled : scaled;
+        if (Double.isNaN(value) || Double.isInfinite(value))
+            throw new ArithmeticException("Cannot round " + value);
+        return slowRound(value, decimalPlaces).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Find the fewest decimal places which read back as the same value.
+     *
+     * @return the scaled value in the low 58 bits and the decimal places in the top 5 or -1 if
+     * Double.toString would use scientific notation or more digits than fit a long.
+     */
+    private static long shortest(double value) {
+        double abs = Math.abs(value);
+        if (abs == 0)
+            return 1L << 58;
+        // Double.toString uses scientific notation outside this range.
+        if (!(abs >= 1e-3 && abs < 1e7))
+            return -1;
+        for (int dp = 1; dp < POW10D.length; dp++) {
+            double scaled = abs * POW10D[dp];
+            if (scaled >= MAX_EXACT)
+                break;
+            long m = Math.round(scaled);
+            // both are exact so the division is correctly rounded, as parsing the text would be.
+            if (m / POW10D[dp] == abs)
+                return ((long) dp << 58) | m;
+        }
+        return -1;
+    }
+
+    private static long scaledOf(long places) {
+        return places & ((1L << 58) - 1);
+    }
+
+    private static int decimalPlacesOf(long places) {
+        return (int) (places >>> 58);
+    }
+
+    private static int lengthOf(boolean negative, long scaled, int decimalPlaces) {
+        return (negative ? 1 : 0)
+                + Math.max(digits(scaled), decimalPlaces + 1)
+                + (decimalPlaces > 0 ? 1 : 0);
+    }
+
+    private static StringBuilder appendDecimal(StringBuilder sb, boolean negative, long scaled, int decimalPlaces) {
+        int start = sb.length();
+        int pos = start + lengthOf(negative, scaled, decimalPlaces);
+        sb.setLength(pos);
+        for (int i = 0; i < decimalPlaces; i++) {
+            sb.setCharAt(--pos, (char) ('0' + scaled % 10));
+            scaled /= 10;
+        }
+        if (decimalPlaces > 0)
+            sb.setCharAt(--pos, '.');
+        do {
+            sb.setCharAt(--pos, (char) ('0' + scaled % 10));
+            scaled /= 10;
+        } while (scaled > 0);
+        if (negative)
+            sb.setCharAt(--pos, '-');
+        return sb;
+    }
+
+    private static int appendDecimal(char[] chars, int start, boolean negative, long scaled, int decimalPlaces) {
+        int end = start + lengthOf(negative, scaled, decimalPlaces);
+        if (start < 0 || end > chars.length)
+            throw new ArrayIndexOutOfBoundsException("pos: " + start + " end: " + end + " length: " + chars.length);
+        int pos = end;
+        for (int i = 0; i < decimalPlaces; i++) {
+            chars[--pos] = (char) ('0' + scaled % 10);
+            scaled /= 10;
+        }
+        if (decimalPlaces > 0)
+            chars[--pos] = '.';
+        do {
+            chars[--pos] = (char) ('0' + scaled % 10);
+            scaled /= 10;
+        } while (scaled > 0);
+        if (negative)
+            chars[--pos] = '-';
+        return end;
+    }
+
+    private static long writeDecimal(long address, boolean negative, long scaled, int decimalPlaces) {
+        long end = address + lengthOf(negative, scaled, decimalPlaces);
+        long pos = end;
+        for (int i = 0; i < decimalPlaces; i++) {
+            MEMORY.writeByte(--pos, (byte) ('0' + scaled % 10));
+            scaled /= 10;
+        }
+        if (decimalPlaces > 0)
+            MEMORY.writeByte(--pos, (byte) '.');
+        do {
+            MEMORY.writeByte(--pos, (byte) ('0' + scaled % 10));
+            scaled /= 10;
+        } while (scaled > 0);
+        if (negative)
+            MEMORY.writeByte(--pos, (byte) '-');
+        return end;
+    }
+
+    private static int appendString(char[] chars, int pos, String s) {
+        s.getChars(0, s.length(), chars, pos);
+        return pos + s.length();
+    }
+
+    private static long writeAscii(long address, String s) {
+        for (int i = 0; i < s.length(); i++)
+            MEMORY.writeByte(address + i, (byte) s.charAt(i));
+        return address + s.length();
+    }
+}
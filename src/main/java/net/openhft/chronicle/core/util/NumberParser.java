@@ -0,0 +1,342 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.OS;
+
+/**
+ * Parse decimal numbers from a CharSequence, char[], byte[] or native memory without creating garbage.
+ * <p>
+ * parse() reads an optional sign, digits with an optional decimal point, and an optional exponent, then the
+ * value can be taken as a long, int, double or fixed point long. Errors are reported by the return value of
+ * parse() and by overflow() rather than by throwing an exception.
+ * <pre>
+ * if (parser.parse(line, pos, line.length())) {
+ *     long price = parser.scaledValue(4);
+ *     pos = parser.end();
+ * }
+ * </pre>
+ * A parser is not thread safe and can be reused.
+ */
+public final class NumberParser {
+    private static final Memory MEMORY = OS.memory();
+    private static final long BYTE_BASE = MEMORY.arrayBaseOffset(byte[].class);
+    private static final long CHAR_BASE = MEMORY.arrayBaseOffset(char[].class);
+    private static final long MULT_MIN = Long.MIN_VALUE / 10;
+    private static final long[] POW10 = new long[19];
+    private static final double[] POW10D = new double[23];
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++)
+            POW10[i] = POW10[i - 1] * 10;
+        for (int i = 0; i < POW10D.length; i++)
+            POW10D[i] = i < POW10.length ? POW10[i] : POW10D[i - 1] * 10;
+    }
+
+    // the digits as a negative value so Long.MIN_VALUE can be represented.
+    private long mantissa;
+    private int exponent;
+    private boolean negative, integer, truncated, overflow;
+    // once a digit has been dropped, all the digits which follow are dropped too.
+    private boolean full;
+    // the first digit dropped, for rounding.
+    private int firstDropped;
+    private int start, end;
+    // the text parsed, either a CharSequence or a byte or char base and offset, retained for doubleValue()
+    private CharSequence text;
+    private Object base;
+    private long offset;
+    private int shift;
+
+    /**
+     * @param cs to parse
+     * @return true if a number was found at the start.
+     */
+    public boolean parse(CharSequence cs) {
+        return parse(cs, 0, cs.length());
+    }
+
+    /**
+     * @param cs   to parse
+     * @param from the first char of the number
+     * @param to   the end of the text
+     * @return true if a number was found at from
+     */
+    public boolean parse(CharSequence cs, int from, int to) {
+        reset(from);
+        text = cs;
+        return parse(from, to);
+    }
+
+    /**
+     * @param chars to parse
+     * @param from  the first char of the number
+     * @param to    the end of the text
+     * @return true if a number was found at from
+     */
+    public boolean parse(char[] chars, int from, int to) {
+        checkRange(chars.length, from, to);
+        return parse(chars, CHAR_BASE, 1, from, to);
+    }
+
+    /**
+     * @param bytes of ASCII text to parse
+     * @param from  the first byte of the number
+     * @param to    the end of the text
+     * @return true if a number was found at from
+     */
+    public boolean parse(byte[] bytes, int from, int to) {
+        checkRange(bytes.length, from, to);
+        return parse(bytes, BYTE_BASE, 0, from, to);
+    }
+
+    /**
+     * Parse ASCII text in native memory. end() is the offset from address after the number.
+     *
+     * @param address of the first byte of the number
+     * @param length  of the text
+     * @return true if a number was found at address.
+     */
+    public boolean parseMemory(long address, int length) {
+        if (length < 0)
+            throw new IllegalArgumentException("length: " + length);
+        return parse(null, address, 0, 0, length);
+    }
+
+    private static void checkRange(int length, int from, int to) {
+        if (from < 0 || from > to || to > length)
+            throw new ArrayIndexOutOfBoundsException("from: " + from + " to: " + to + " length: " + length);
+    }
+
+    private int charAt(int i) {
+        if (text != null)
+            return text.charAt(i);
+        return shift == 0
+                ? MEMORY.readByte(base, offset + i) & 0xFF
+                : MEMORY.readShort(base, offset + (i << 1)) & 0xFFFF;
+    }
+
+    private boolean parse(Object base, long offset, int shift, int from, int to) {
+        reset(from);
+        this.base = base;
+        this.offset = offset;
+        this.shift = shift;
+        return parse(from, to);
+    }
+
+    private boolean parse(int from, int to) {
+        int i = from;
+        if (i < to) {
+            int c = charAt(i);
+            if (c == '-') {
+                negative = true;
+                i++;
+            } else if (c == '+') {
+                i++;
+            }
+        }
+        int digitsStart = i;
+        for (; i < to; i++) {
+            int d = charAt(i) - '0';
+            if (d < 0 || d > 9)
+                break;
+            digit(d);
+        }
+        int digits = i - digitsStart;
+        if (i < to && charAt(i) == '.') {
+            integer = false;
+            int fractionStart = ++i;
+            for (; i < to; i++) {
+                int d = charAt(i) - '0';
+                if (d < 0 || d > 9)
+                    break;
+                digit(d);
+                exponent--;
+            }
+            digits += i - fractionStart;
+        }
+        if (digits == 0)
+            return false;
+        if (i < to && (charAt(i) | 0x20) == 'e') {
+            int j = i + 1;
+            boolean expNegative = false;
+            if (j < to && (charAt(j) == '-' || charAt(j) == '+'))
+                expNegative = charAt(j++) == '-';
+            int expStart = j, exp = 0;
+            for (; j < to; j++) {
+                int d = charAt(j) - '0';
+                if (d < 0 || d > 9)
+                    break;
+                if (exp < 100_000)
+                    exp = exp * 10 + d;
+            }
+            if (j > expStart) {
+                exponent += expNegative ? -exp : exp;
+                integer = false;
+                i = j;
+            }
+        }
+        end = i;
+        return true;
+    }
+
+    private void reset(int from) {
+        mantissa = 0;
+        exponent = 0;
+        negative = truncated = overflow = full = false;
+        firstDropped = 0;
+        integer = true;
+        start = end = from;
+        text = null;
+        base = null;
+    }
+
+    private void digit(int d) {
+        if (full || mantissa < MULT_MIN || mantissa * 10 < Long.MIN_VALUE + d) {
+            // keep the most significant digits.
+            if (!full) {
+                full = true;
+                firstDropped = d;
+            }
+            exponent++;
+            truncated |= d != 0;
+        } else {
+            mantissa = mantissa * 10 - d;
+        }
+    }
+
+    /**
+     * @return the position after the number parsed.
+     */
+    public int end() {
+        return end;
+    }
+
+    /**
+     * @return true if the number had no decimal point or exponent.
+     */
+    public boolean isInteger() {
+        return integer;
+    }
+
+    /**
+     * @return true if the last value taken was out of range and has been limited to the range of its type.
+     */
+    public boolean overflow() {
+        return overflow;
+    }
+
+    /**
+     * @return the value with any fraction discarded, as a cast from double to long would.
+     */
+    public long longValue() {
+        return scaled(0, false);
+    }
+
+    /**
+     * @return the value with any fraction discarded.
+     */
+    public int intValue() {
+        long value = scaled(0, false);
+        if ((int) value == value)
+            return (int) value;
+        overflow = true;
+        return value < 0 ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+    }
+
+    /**
+     * A fixed point value, e.g. 1.23456 with a scale of 4 is 12346.
+     *
+     * @param scale the number of decimal places to keep
+     * @return the value times 10^scale, rounded half away from zero.
+     */
+    public long scaledValue(int scale) {
+        return scaled(scale, true);
+    }
+
+    private long scaled(int scale, boolean round) {
+        overflow = false;
+        long m = mantissa;
+        long e = (long) exponent + scale;
+        if (m == 0) {
+            return 0;
+        } else if (e > 0) {
+            // the first digit dropped didn't fit in a long.
+            if (full)
+                return overflowed();
+            for (; e > 0; e--) {
+                if (m < MULT_MIN)
+                    return overflowed();
+                m *= 10;
+            }
+        } else if (e < 0) {
+            if (e < -18) {
+                // only 0.5 or more can round away from zero.
+                m = round && e == -19 && m <= -5_000_000_000_000_000_000L ? -1 : 0;
+            } else {
+                long p = POW10[(int) -e];
+                long r = m % p;
+                m /= p;
+                // the digits dropped can't make up the difference as p is even.
+                if (round && -r >= p - (-r))
+                    m--;
+            }
+        } else if (round && full && firstDropped >= 5) {
+            // the first digit dropped is the first digit of the fraction.
+            if (m == Long.MIN_VALUE)
+                return overflowed();
+            m--;
+        }
+        if (negative)
+            return m;
+        if (m == Long.MIN_VALUE)
+            return overflowed();
+        return -m;
+    }
+
+    private long overflowed() {
+        overflow = true;
+        return negative ? Long.MIN_VALUE : Long.MAX_VALUE;
+    }
+
+    /**
+     * @return the value as the nearest double.
+     */
+    public double doubleValue() {
+        overflow = false;
+        if (mantissa == 0)
+            return negative ? -0.0 : 0.0;
+        // when the mantissa and the power of ten are exact, one operation gives the nearest double.
+        if (!truncated && mantissa > -(1L << 53) && exponent >= -22 && exponent <= 22) {
+            double d = -mantissa;
+            d = exponent >= 0 ? d * POW10D[exponent] : d / POW10D[-exponent];
+            return negative ? -d : d;
+        }
+        return Double.parseDouble(textParsed());
+    }
+
+    private String textParsed() {
+        if (text != null)
+            return text.subSequence(start, end).toString();
+        StringBuilder sb = new StringBuilder(end - start);
+        for (int i = start; i < end; i++)
+            sb.append((char) charAt(i));
+        return sb.toString();
+    }
+}
@@ -37,6 +37,7 @@ import java.util.Map;
 public enum ObjectUtils {
     ;
 
+    private static final ThreadLocal<NumberParser> NUMBER_PARSER = ThreadLocal.withInitial(NumberParser::new);
 
     static final ClassLocal<Constructor> CONSTRUCTOR_CLASS_LOCAL = ClassLocal.withInitial(c -> {
         try {
@@ -167,6 +168,11 @@ public enum ObjectUtils {
             if (eClass == BigInteger.class)
                 return new BigInteger(o.toString());
         } else {
+            if (o instanceof CharSequence) {
+                Number n = parseNumber(eClass, (CharSequence) o);
+                if (n != null)
+                    return n;
+            }
             String s = o.toString();
             if (eClass == Double.class)
                 return Double.parseDouble(s);
@@ -189,6 +195,25 @@ public enum ObjectUtils {
         throw new UnsupportedOperationException("Cannot convert " + o.getClass() + " to " + eClass);
     }
 
+    /**
+     * Parse without calling toString() where possible.
+     *
+     * @return the number or null if it should be parsed the usual way.
+     */
+    private static Number parseNumber(Class<?> eClass, CharSequence cs) {
+        if (eClass != Double.class && eClass != Long.class && eClass != Integer.class)
+            return null;
+        NumberParser parser = NUMBER_PARSER.get();
+        if (!parser.parse(cs) || parser.end() != cs.length())
+            return null;
+        if (eClass == Double.class)
+            return parser.doubleValue();
+        if (!parser.isInteger())
+            return null;
+        Number n = eClass == Long.class ? (Number) parser.longValue() : (Number) parser.intValue();
+        return parser.overflow() ? null : n;
+    }
+
     public static <T> T newInstance(Class<T> clazz) {
         Constructor cons = CONSTRUCTOR_CLASS_LOCAL.get(clazz);
         try {
@@ -20,7 +20,6 @@ import net.openhft.chronicle.core.annotation.ForceInline;
 import org.jetbrains.annotations.NotNull;
 
 import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
 
 import static java.lang.Character.toLowerCase;
 
@@ -31,18 +30,15 @@ public enum StringUtils {
     ;
 
     private static final Constructor<String> STRING_CONSTRUCTOR;
-    private static final Field S_VALUE, SB_VALUE, SB_COUNT;
+    private static final FieldAccessor S_VALUE, SB_VALUE, SB_COUNT;
 
     static {
         try {
             STRING_CONSTRUCTOR = String.class.getDeclaredConstructor(char[].class, boolean.class);
             STRING_CONSTRUCTOR.setAccessible(true);
-            S_VALUE = String.class.getDeclaredField("value");
-            S_VALUE.setAccessible(true);
-            SB_VALUE = Class.forName("java.lang.AbstractStringBuilder").getDeclaredField("value");
-            SB_VALUE.setAccessible(true);
-            SB_COUNT = Class.forName("java.lang.AbstractStringBuilder").getDeclaredField("count");
-            SB_COUNT.setAccessible(true);
+            S_VALUE = FieldAccessor.of(String.class, "value");
+            SB_VALUE = FieldAccessor.of(StringBuilder.class, "value");
+            SB_COUNT = FieldAccessor.of(StringBuilder.class, "count");
         } catch (Exception e) {
             throw new AssertionError(e);
         }
@@ -77,27 +73,15 @@ public enum StringUtils {
     }
 
     public static char[] extractChars(StringBuilder sb) {
-        try {
-            return (char[]) SB_VALUE.get(sb);
-        } catch (IllegalAccessException e) {
-            throw new AssertionError(e);
-        }
+        return SB_VALUE.getObject(sb);
     }
 
     public static char[] extractChars(String s) {
-        try {
-            return (char[]) S_VALUE.get(s);
-        } catch (IllegalAccessException e) {
-            throw new AssertionError(e);
-        }
+        return S_VALUE.getObject(s);
     }
 
     public static void setCount(StringBuilder sb, int count) {
-        try {
-            SB_COUNT.setInt(sb, count);
-        } catch (IllegalAccessException e) {
-            throw new AssertionError(e);
-        }
+        SB_COUNT.setInt(sb, count);
     }
 
     public static String newString(char[] chars) {
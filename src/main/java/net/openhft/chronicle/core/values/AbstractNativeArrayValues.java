@@ -0,0 +1,108 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.values;
+
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.NativeOwner;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.io.Closeable;
+
+/**
+ * Common support for arrays of primitives held in native memory, either allocated or bound to an
+ * existing region such as a memory mapping.
+ */
+abstract class AbstractNativeArrayValues implements Closeable {
+    static final Memory MEMORY = OS.memory();
+    // copy to/from the heap in chunks so a large copy doesn't delay a safepoint.
+    private static final int COPY_CHUNK = 1 << 20;
+
+    final long address;
+    final long capacity;
+    private final int shift;
+    // null if bound to memory owned elsewhere.
+    private final NativeOwner owner;
+
+    AbstractNativeArrayValues(long address, long capacity, int shift, NativeOwner owner) {
+        if (address == 0)
+            throw new IllegalArgumentException("Invalid address: 0");
+        if (capacity < 0)
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        this.address = address;
+        this.capacity = capacity;
+        this.shift = shift;
+        this.owner = owner;
+    }
+
+    static NativeOwner allocate0(long capacity, int shift) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        return NativeOwner.allocateZeroed(capacity << shift);
+    }
+
+    static void copyToHeap(long address, Object array, long offset, long length) {
+        while (length > 0) {
+            int chunk = (int) Math.min(length, COPY_CHUNK);
+            MEMORY.copyMemory(address, array, offset, chunk);
+            address += chunk;
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    static void copyFromHeap(Object array, long offset, long address, long length) {
+        while (length > 0) {
+            int chunk = (int) Math.min(length, COPY_CHUNK);
+            MEMORY.copyMemory(array, offset, address, chunk);
+            address += chunk;
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    static void checkArray(int arrayLength, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > arrayLength - length)
+            throw new ArrayIndexOutOfBoundsException("offset: " + offset + " length: " + length + " array.length: " + arrayLength);
+    }
+
+    /**
+     * @return the address of the first element.
+     */
+    public long address() {
+        return address;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    long addressOf(long index) {
+        if (index < 0 || index >= capacity)
+            throw new IndexOutOfBoundsException("index: " + index + " capacity: " + capacity);
+        return address + (index << shift);
+    }
+
+    void checkRange(long from, long to) {
+        if (from < 0 || from > to || to > capacity)
+            throw new IndexOutOfBoundsException("from: " + from + " to: " + to + " capacity: " + capacity);
+    }
+
+    @Override
+    public void close() {
+        if (owner != null)
+            owner.close();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.values;
+
+/**
+ * An array of byte values, typically in native or shared memory.
+ */
+public interface ByteArrayValues {
+    long getCapacity();
+
+    byte getValueAt(long index);
+
+    void setValueAt(long index, byte value);
+
+    byte getVolatileValueAt(long index);
+
+    void setOrderedValueAt(long index, byte value);
+
+    boolean compareAndSet(long index, byte expected, byte value);
+
+    /**
+     * Set every element in the range [from, to) to value.
+     */
+    void fill(long from, long to, byte value);
+
+    /**
+     * Copy length elements starting at index into the array.
+     */
+    void copyTo(long index, byte[] array, int offset, int length);
+
+    /**
+     * Copy length elements from the array into this starting at index.
+     */
+    void copyFrom(long index, byte[] array, int offset, int length);
+
+    long sum(long from, long to);
+
+    /**
+     * @return the smallest value in the range [from, to) or Byte.MAX_VALUE if empty.
+     */
+    byte min(long from, long to);
+
+    /**
+     * @return the largest value in the range [from, to) or Byte.MIN_VALUE if empty.
+     */
+    byte max(long from, long to);
+
+    /**
+     * Search a range in ascending order for a value.
+     *
+     * @return the index of the value, or -(insertion point) - 1 as for Arrays.binarySearch
+     */
+    long binarySearch(long from, long to, byte value);
+}
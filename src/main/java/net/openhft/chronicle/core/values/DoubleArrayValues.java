@@ -0,0 +1,73 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.values;
+
+/**
+ * An array of double values, typically in native or shared memory.
+ */
+public interface DoubleArrayValues {
+    long getCapacity();
+
+    double getValueAt(long index);
+
+    void setValueAt(long index, double value);
+
+    double getVolatileValueAt(long index);
+
+    void setOrderedValueAt(long index, double value);
+
+    /**
+     * Compare and set based on the raw bits of the values, so NaN can be swapped and 0.0 != -0.0
+     */
+    boolean compareAndSet(long index, double expected, double value);
+
+    double addAtomicValueAt(long index, double delta);
+
+    /**
+     * Set every element in the range [from, to) to value.
+     */
+    void fill(long from, long to, double value);
+
+    /**
+     * Copy length elements starting at index into the array.
+     */
+    void copyTo(long index, double[] array, int offset, int length);
+
+    /**
+     * Copy length elements from the array into this starting at index.
+     */
+    void copyFrom(long index, double[] array, int offset, int length);
+
+    double sum(long from, long to);
+
+    /**
+     * @return the smallest value in the range [from, to) or Double.POSITIVE_INFINITY if empty.
+     */
+    double min(long from, long to);
+
+    /**
+     * @return the largest value in the range [from, to) or Double.NEGATIVE_INFINITY if empty.
+     */
+    double max(long from, long to);
+
+    /**
+     * Search a range in ascending order for a value.
+     *
+     * @return the index of the value, or -(insertion point) - 1 as for Arrays.binarySearch
+     */
+    long binarySearch(long from, long to, double value);
+}
@@ -0,0 +1,70 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.values;
+
+/**
+ * An array of int values, typically in native or shared memory.
+ */
+public interface IntArrayValues {
+    long getCapacity();
+
+    int getValueAt(long index);
+
+    void setValueAt(long index, int value);
+
+    int getVolatileValueAt(long index);
+
+    void setOrderedValueAt(long index, int value);
+
+    boolean compareAndSet(long index, int expected, int value);
+
+    int addAtomicValueAt(long index, int delta);
+
+    /**
+     * Set every element in the range [from, to) to value.
+     */
+    void fill(long from, long to, int value);
+
+    /**
+     * Copy length elements starting at index into the array.
+     */
+    void copyTo(long index, int[] array, int offset, int length);
+
+    /**
+     * Copy length elements from the array into this starting at index.
+     */
+    void copyFrom(long index, int[] array, int offset, int length);
+
+    long sum(long from, long to);
+
+    /**
+     * @return the smallest value in the range [from, to) or Integer.MAX_VALUE if empty.
+     */
+    int min(long from, long to);
+
+    /**
+     * @return the largest value in the range [from, to) or Integer.MIN_VALUE if empty.
+     */
+    int max(long from, long to);
+
+    /**
+     * Search a range in ascending order for a value.
+     *
+     * @return the index of the value, or -(insertion point) - 1 as for Arrays.binarySearch
+     */
+    long binarySearch(long from, long to, int value);
+}
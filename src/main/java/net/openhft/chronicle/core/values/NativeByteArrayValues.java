@@ -0,0 +1,185 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.values;
+
+import net.openhft.chronicle.core.NativeOwner;
+
+import java.nio.ByteOrder;
+
+/**
+ * A ByteArrayValues held in native memory. Bulk operations read eight bytes at a time.
+ */
+public class NativeByteArrayValues extends AbstractNativeArrayValues implements ByteArrayValues {
+    private static final long BYTE_ARRAY_BASE = MEMORY.arrayBaseOffset(byte[].class);
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+    private static final long LOW_BYTES = 0x00FF00FF00FF00FFL;
+    private static final long LOW_SHORTS = 0x0000FFFF0000FFFFL;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    /**
+     * Bind to existing memory of at least capacity bytes. The memory is not freed on close()
+     *
+     * @param address  of the first element
+     * @param capacity in elements
+     */
+    public NativeByteArrayValues(long address, long capacity) {
+        super(address, capacity, 0, null);
+    }
+
+    private NativeByteArrayValues(NativeOwner owner, long capacity) {
+        super(owner.address(), capacity, 0, owner);
+    }
+
+    /**
+     * Allocate a zeroed array which is freed on close(), or once collected if not closed.
+     *
+     * @param capacity in elements
+     * @return the array
+     */
+    public static NativeByteArrayValues allocate(long capacity) {
+        return new NativeByteArrayValues(allocate0(capacity, 0), capacity);
+    }
+
+    @Override
+    public byte getValueAt(long index) {
+        return MEMORY.readByte(addressOf(index));
+    }
+
+    @Override
+    public void setValueAt(long index, byte value) {
+        MEMORY.writeByte(addressOf(index), value);
+    }
+
+    @Override
+    public byte getVolatileValueAt(long index) {
+        byte b = MEMORY.readByte(addressOf(index));
+        MEMORY.loadFence();
+        return b;
+    }
+
+    @Override
+    public void setOrderedValueAt(long index, byte value) {
+        long addr = addressOf(index);
+        MEMORY.storeFence();
+        MEMORY.writeByte(addr, value);
+    }
+
+    /**
+     * There is no byte sized CAS so this CASes the aligned int containing the byte.
+     */
+    @Override
+    public boolean compareAndSet(long index, byte expected, byte value) {
+        long addr = addressOf(index);
+        long wordAddress = addr & ~3L;
+        int shift = (int) (addr & 3) << 3;
+        if (!LITTLE_ENDIAN)
+            shift = 24 - shift;
+        int mask = 0xFF << shift;
+        for (; ; ) {
+            int word = MEMORY.readVolatileInt(wordAddress);
+            if ((byte) (word >>> shift) != expected)
+                return false;
+            int word2 = (word & ~mask) | ((value & 0xFF) << shift);
+            if (MEMORY.compareAndSwapInt(wordAddress, word, word2))
+                return true;
+        }
+    }
+
+    @Override
+    public void fill(long from, long to, byte value) {
+        checkRange(from, to);
+        MEMORY.setMemory(address + from, to - from, value);
+    }
+
+    @Override
+    public void copyTo(long index, byte[] array, int offset, int length) {
+        checkArray(array.length, offset, length);
+        checkRange(index, index + length);
+        copyToHeap(address + index, array, BYTE_ARRAY_BASE + offset, length);
+    }
+
+    @Override
+    public void copyFrom(long index, byte[] array, int offset, int length) {
+        checkArray(array.length, offset, length);
+        checkRange(index, index + length);
+        copyFromHeap(array, BYTE_ARRAY_BASE + offset, address + index, length);
+    }
+
+    @Override
+    public long sum(long from, long to) {
+        checkRange(from, to);
+        long addr = address + from, end = address + to;
+        long sum = 0;
+        for (; addr + 8 <= end; addr += 8) {
+            long l = MEMORY.readLong(addr);
+            // add the bytes as unsigned in parallel, then subtract 256 for each negative byte.
+            long pairs = (l & LOW_BYTES) + ((l >>> 8) & LOW_BYTES);
+            long quads = (pairs & LOW_SHORTS) + ((pairs >>> 16) & LOW_SHORTS);
+            sum += (quads & 0xFFFFFFFFL) + (quads >>> 32) - (Long.bitCount(l & HIGH_BITS) << 8);
+        }
+        for (; addr < end; addr++)
+            sum += MEMORY.readByte(addr);
+        return sum;
+    }
+
+    @Override
+    public byte min(long from, long to) {
+        checkRange(from, to);
+        long addr = address + from, end = address + to;
+        int min = Byte.MAX_VALUE;
+        for (; addr + 8 <= end; addr += 8) {
+            long l = MEMORY.readLong(addr);
+            for (int i = 0; i < 64; i += 8)
+                min = Math.min(min, (byte) (l >> i));
+        }
+        for (; addr < end; addr++)
+            min = Math.min(min, MEMORY.readByte(addr));
+        return (byte) min;
+    }
+
+    @Override
+    public byte max(long from, long to) {
+        checkRange(from, to);
+        long addr = address + from, end = address + to;
+        int max = Byte.MIN_VALUE;
+        for (; addr + 8 <= end; addr += 8) {
+            long l = MEMORY.readLong(addr);
+            for (int i = 0; i < 64; i += 8)
+                max = Math.max(max, (byte) (l >> i));
+        }
+        for (; addr < end; addr++)
+            max = Math.max(max, MEMORY.readByte(addr));
+        return (byte) max;
+    }
+
+    @Override
+    public long binarySearch(long from, long to, byte value) {
+        checkRange(from, to);
+        long low = from, high = to - 1;
+        while (low <= high) {
+            long mid = (low + high) >>> 1;
+            byte midVal = MEMORY.readByte(address + mid);
+            if (midVal < value)
+                low = mid + 1;
+            else if (midVal > value)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -(low + 1);
+    }
+}
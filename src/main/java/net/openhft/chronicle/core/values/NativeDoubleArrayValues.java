@@ -0,0 +1,153 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.values;
+
+import net.openhft.chronicle.core.NativeOwner;
+
+/**
+ * A DoubleArrayValues held in native memory.
+ */
+public class NativeDoubleArrayValues extends AbstractNativeArrayValues implements DoubleArrayValues {
+    private static final long DOUBLE_ARRAY_BASE = MEMORY.arrayBaseOffset(double[].class);
+
+    /**
+     * Bind to existing memory of at least capacity * 8 bytes. The memory is not freed on close()
+     *
+     * @param address  of the first element
+     * @param capacity in elements
+     */
+    public NativeDoubleArrayValues(long address, long capacity) {
+        super(address, capacity, 3, null);
+    }
+
+    private NativeDoubleArrayValues(NativeOwner owner, long capacity) {
+        super(owner.address(), capacity, 3, owner);
+    }
+
+    /**
+     * Allocate a zeroed array which is freed on close(), or once collected if not closed.
+     *
+     * @param capacity in elements
+     * @return the array
+     */
+    public static NativeDoubleArrayValues allocate(long capacity) {
+        return new NativeDoubleArrayValues(allocate0(capacity, 3), capacity);
+    }
+
+    @Override
+    public double getValueAt(long index) {
+        return MEMORY.readDouble(addressOf(index));
+    }
+
+    @Override
+    public void setValueAt(long index, double value) {
+        MEMORY.writeDouble(addressOf(index), value);
+    }
+
+    @Override
+    public double getVolatileValueAt(long index) {
+        return Double.longBitsToDouble(MEMORY.readVolatileLong(addressOf(index)));
+    }
+
+    @Override
+    public void setOrderedValueAt(long index, double value) {
+        MEMORY.writeOrderedLong(addressOf(index), Double.doubleToRawLongBits(value));
+    }
+
+    @Override
+    public boolean compareAndSet(long index, double expected, double value) {
+        return MEMORY.compareAndSwapLong(addressOf(index),
+                Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(value));
+    }
+
+    @Override
+    public double addAtomicValueAt(long index, double delta) {
+        long addr = addressOf(index);
+        for (; ; ) {
+            long bits = MEMORY.readVolatileLong(addr);
+            double value2 = Double.longBitsToDouble(bits) + delta;
+            if (MEMORY.compareAndSwapLong(addr, bits, Double.doubleToRawLongBits(value2)))
+                return value2;
+        }
+    }
+
+    @Override
+    public void fill(long from, long to, double value) {
+        checkRange(from, to);
+        long bits = Double.doubleToRawLongBits(value);
+        for (long addr = address + (from << 3), end = address + (to << 3); addr < end; addr += 8)
+            MEMORY.writeLong(addr, bits);
+    }
+
+    @Override
+    public void copyTo(long index, double[] array, int offset, int length) {
+        checkArray(array.length, offset, length);
+        checkRange(index, index + length);
+        copyToHeap(address + (index << 3), array, DOUBLE_ARRAY_BASE + ((long) offset << 3), (long) length << 3);
+    }
+
+    @Override
+    public void copyFrom(long index, double[] array, int offset, int length) {
+        checkArray(array.length, offset, length);
+        checkRange(index, index + length);
+        copyFromHeap(array, DOUBLE_ARRAY_BASE + ((long) offset << 3), address + (index << 3), (long) length << 3);
+    }
+
+    @Override
+    public double sum(long from, long to) {
+        checkRange(from, to);
+        double sum = 0;
+        for (long addr = address + (from << 3), end = address + (to << 3); addr < end; addr += 8)
+            sum += MEMORY.readDouble(addr);
+        return sum;
+    }
+
+    @Override
+    public double min(long from, long to) {
+        checkRange(from, to);
+        double min = Double.POSITIVE_INFINITY;
+        for (long addr = address + (from << 3), end = address + (to << 3); addr < end; addr += 8)
+            min = Math.min(min, MEMORY.readDouble(addr));
+        return min;
+    }
+
+    @Override
+    public double max(long from, long to) {
+        checkRange(from, to);
+        double max = Double.NEGATIVE_INFINITY;
+        for (long addr = address + (from << 3), end = address + (to << 3); addr < end; addr += 8)
+            max = Math.max(max, MEMORY.readDouble(addr));
+        return max;
+    }
+
+    @Override
+    public long binarySearch(long from, long to, double value) {
+        checkRange(from, to);
+        long low = from, high = to - 1;
+        while (low <= high) {
+            long mid = (low + high) >>> 1;
+            int cmp = Double.compare(MEMORY.readDouble(address + (mid << 3)), value);
+            if (cmp < 0)
+                low = mid + 1;
+            else if (cmp > 0)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -(low + 1);
+    }
+}
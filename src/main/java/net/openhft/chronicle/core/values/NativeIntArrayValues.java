@@ -0,0 +1,186 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.values;
+
+import net.openhft.chronicle.core.NativeOwner;
+
+/**
+ * An IntArrayValues held in native memory. Bulk operations read and write eight bytes at a time.
+ */
+public class NativeIntArrayValues extends AbstractNativeArrayValues implements IntArrayValues {
+    private static final long INT_ARRAY_BASE = MEMORY.arrayBaseOffset(int[].class);
+
+    /**
+     * Bind to existing memory of at least capacity * 4 bytes. The memory is not freed on close()
+     *
+     * @param address  of the first element
+     * @param capacity in elements
+     */
+    public NativeIntArrayValues(long address, long capacity) {
+        super(address, capacity, 2, null);
+    }
+
+    private NativeIntArrayValues(NativeOwner owner, long capacity) {
+        super(owner.address(), capacity, 2, owner);
+    }
+
+    /**
+     * Allocate a zeroed array which is freed on close(), or once collected if not closed.
+     *
+     * @param capacity in elements
+     * @return the array
+     */
+    public static NativeIntArrayValues allocate(long capacity) {
+        return new NativeIntArrayValues(allocate0(capacity, 2), capacity);
+    }
+
+    @Override
+    public int getValueAt(long index) {
+        return MEMORY.readInt(addressOf(index));
+    }
+
+    @Override
+    public void setValueAt(long index, int value) {
+        MEMORY.writeInt(addressOf(index), value);
+    }
+
+    @Override
+    public int getVolatileValueAt(long index) {
+        return MEMORY.readVolatileInt(addressOf(index));
+    }
+
+    @Override
+    public void setOrderedValueAt(long index, int value) {
+        MEMORY.writeOrderedInt(addressOf(index), value);
+    }
+
+    @Override
+    public boolean compareAndSet(long index, int expected, int value) {
+        return MEMORY.compareAndSwapInt(addressOf(index), expected, value);
+    }
+
+    @Override
+    public int addAtomicValueAt(long index, int delta) {
+        long addr = addressOf(index);
+        for (; ; ) {
+            int value = MEMORY.readVolatileInt(addr);
+            int value2 = value + delta;
+            if (MEMORY.compareAndSwapInt(addr, value, value2))
+                return value2;
+        }
+    }
+
+    @Override
+    public void fill(long from, long to, int value) {
+        checkRange(from, to);
+        long addr = address + (from << 2), end = address + (to << 2);
+        if ((addr & 7) != 0 && addr < end) {
+            MEMORY.writeInt(addr, value);
+            addr += 4;
+        }
+        long pattern = (value & 0xFFFFFFFFL) | ((long) value << 32);
+        for (; addr + 8 <= end; addr += 8)
+            MEMORY.writeLong(addr, pattern);
+        if (addr < end)
+            MEMORY.writeInt(addr, value);
+    }
+
+    @Override
+    public void copyTo(long index, int[] array, int offset, int length) {
+        checkArray(array.length, offset, length);
+        checkRange(index, index + length);
+        copyToHeap(address + (index << 2), array, INT_ARRAY_BASE + ((long) offset << 2), (long) length << 2);
+    }
+
+    @Override
+    public void copyFrom(long index, int[] array, int offset, int length) {
+        checkArray(array.length, offset, length);
+        checkRange(index, index + length);
+        copyFromHeap(array, INT_ARRAY_BASE + ((long) offset << 2), address + (index << 2), (long) length << 2);
+    }
+
+    @Override
+    public long sum(long from, long to) {
+        checkRange(from, to);
+        long addr = address + (from << 2), end = address + (to << 2);
+        long sum = 0;
+        if ((addr & 7) != 0 && addr < end) {
+            sum += MEMORY.readInt(addr);
+            addr += 4;
+        }
+        for (; addr + 8 <= end; addr += 8) {
+            long l = MEMORY.readLong(addr);
+            sum += (long) (int) l + (int) (l >> 32);
+        }
+        if (addr < end)
+            sum += MEMORY.readInt(addr);
+        return sum;
+    }
+
+    @Override
+    public int min(long from, long to) {
+        checkRange(from, to);
+        long addr = address + (from << 2), end = address + (to << 2);
+        int min = Integer.MAX_VALUE;
+        if ((addr & 7) != 0 && addr < end) {
+            min = MEMORY.readInt(addr);
+            addr += 4;
+        }
+        for (; addr + 8 <= end; addr += 8) {
+            long l = MEMORY.readLong(addr);
+            min = Math.min(min, Math.min((int) l, (int) (l >> 32)));
+        }
+        if (addr < end)
+            min = Math.min(min, MEMORY.readInt(addr));
+        return min;
+    }
+
+    @Override
+    public int max(long from, long to) {
+        checkRange(from, to);
+        long addr = address + (from << 2), end = address + (to << 2);
+        int max = Integer.MIN_VALUE;
+        if ((addr & 7) != 0 && addr < end) {
+            max = MEMORY.readInt(addr);
+            addr += 4;
+        }
+        for (; addr + 8 <= end; addr += 8) {
+            long l = MEMORY.readLong(addr);
+            max = Math.max(max, Math.max((int) l, (int) (l >> 32)));
+        }
+        if (addr < end)
+            max = Math.max(max, MEMORY.readInt(addr));
+        return max;
+    }
+
+    @Override
+    public long binarySearch(long from, long to, int value) {
+        checkRange(from, to);
+        long low = from, high = to - 1;
+        while (low <= high) {
+            long mid = (low + high) >>> 1;
+            int midVal = MEMORY.readInt(address + (mid << 2));
+            if (midVal < value)
+                low = mid + 1;
+            else if (midVal > value)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -(low + 1);
+    }
+}
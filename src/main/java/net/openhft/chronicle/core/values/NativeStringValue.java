@@ -0,0 +1,318 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.values;
+
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.NativeOwner;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.core.pool.StringBuilderPool;
+
+import java.lang.reflect.Method;
+
+/**
+ * A StringValue held in native memory as a field of fixed maximum size.
+ * <p>
+ * The layout is a 32-bit sequence, a 32-bit length in bytes (-1 for null) and up to maxBytes of
+ * encoded text. Writers make the sequence odd while they update the field, and readers retry
+ * until they have decoded the text with the same even sequence before and after, so a reader in
+ * this or another process never sees a torn value.
+ */
+public class NativeStringValue implements StringValue, Closeable {
+    public static final int DEFAULT_MAX_BYTES = defaultMaxBytes();
+    static final int SEQUENCE = 0;
+    static final int LENGTH = 4;
+    static final int DATA = 8;
+    private static final Memory MEMORY = OS.memory();
+    private static final StringBuilderPool SBP = new StringBuilderPool();
+
+    private final long address;
+    private final int maxBytes;
+    private final Encoding encoding;
+    // null if bound to memory owned elsewhere.
+    private final NativeOwner owner;
+
+    /**
+     * Bind to existing memory of at least sizeFor(maxBytes). The memory is not freed on close()
+     *
+     * @param address  of the field
+     * @param maxBytes of encoded text
+     * @param encoding of the text
+     */
+    public NativeStringValue(long address, int maxBytes, Encoding encoding) {
+        this(address, maxBytes, encoding, null);
+    }
+
+    private NativeStringValue(long address, int maxBytes, Encoding encoding, NativeOwner owner) {
+        if (address == 0)
+            throw new IllegalArgumentException("Invalid address: 0");
+        if (maxBytes < 0)
+            throw new IllegalArgumentException("Invalid maxBytes: " + maxBytes);
+        this.address = address;
+        this.maxBytes = maxBytes;
+        this.encoding = encoding;
+        this.owner = owner;
+    }
+
+    /**
+     * Allocate a field initially set to "" which is freed on close(), or once collected if not closed.
+     *
+     * @param maxBytes of encoded text
+     * @param encoding of the text
+     * @return the value
+     */
+    public static NativeStringValue allocate(int maxBytes, Encoding encoding) {
+        NativeOwner owner = NativeOwner.allocateZeroed(sizeFor(maxBytes));
+        return new NativeStringValue(owner.address(), maxBytes, encoding, owner);
+    }
+
+    /**
+     * @param maxBytes of encoded text
+     * @return the number of bytes used by a field of this size.
+     */
+    public static long sizeFor(int maxBytes) {
+        return DATA + maxBytes;
+    }
+
+    /**
+     * @param setter whose first parameter may have a @MaxBytes
+     * @return the maximum bytes for this setter.
+     */
+    public static int maxBytesFor(Method setter) {
+        for (Object annotation : setter.getParameterAnnotations()[0])
+            if (annotation instanceof MaxBytes)
+                return ((MaxBytes) annotation).value();
+        return DEFAULT_MAX_BYTES;
+    }
+
+    private static int defaultMaxBytes() {
+        try {
+            return (Integer) MaxBytes.class.getMethod("value").getDefaultValue();
+        } catch (NoSuchMethodException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Decode the field at base + offset into a StringBuilder without creating any objects.
+     *
+     * @param base     object or null for native memory
+     * @param offset   within the object or the address
+     * @param maxBytes of encoded text
+     * @param encoding of the text
+     * @param sb       to decode into
+     * @return sb or null if the value is null
+     */
+    public static StringBuilder read(Object base, long offset, int maxBytes, Encoding encoding, StringBuilder sb) {
+        for (; ; ) {
+            int seq = MEMORY.readVolatileInt(base, offset + SEQUENCE);
+            if ((seq & 1) != 0)
+                continue;
+            int length = MEMORY.readInt(base, offset + LENGTH);
+            sb.setLength(0);
+            if (length > 0 && length <= maxBytes) {
+                if (encoding == Encoding.LATIN1)
+                    readLatin1(base, offset + DATA, length, sb);
+                else
+                    readUtf8(base, offset + DATA, length, sb);
+            }
+            MEMORY.loadFence();
+            if (MEMORY.readVolatileInt(base, offset + SEQUENCE) != seq)
+                continue;
+            return length < 0 ? null : sb;
+        }
+    }
+
+    /**
+     * Decode the field at base + offset into a String.
+     *
+     * @param base     object or null for native memory
+     * @param offset   within the object or the address
+     * @param maxBytes of encoded text
+     * @param encoding of the text
+     * @return the value
+     */
+    public static String readString(Object base, long offset, int maxBytes, Encoding encoding) {
+        StringBuilder sb = read(base, offset, maxBytes, encoding, SBP.acquireStringBuilder());
+        return sb == null ? null : sb.toString();
+    }
+
+    private static void readLatin1(Object base, long offset, int length, StringBuilder sb) {
+        for (int i = 0; i < length; i++)
+            sb.append((char) (MEMORY.readByte(base, offset + i) & 0xFF));
+    }
+
+    private static void readUtf8(Object base, long offset, int length, StringBuilder sb) {
+        for (int i = 0; i < length; ) {
+            int b = MEMORY.readByte(base, offset + i++);
+            if (b >= 0) {
+                sb.append((char) b);
+                continue;
+            }
+            int extra = (b & 0xE0) == 0xC0 ? 1 : (b & 0xF0) == 0xE0 ? 2 : (b & 0xF8) == 0xF0 ? 3 : -1;
+            if (extra < 0 || i + extra > length) {
+                // malformed, or a torn read which will be retried.
+                sb.append('\uFFFD');
+                continue;
+            }
+            int cp = b & (0x3F >> extra);
+            for (int j = 0; j < extra; j++)
+                cp = (cp << 6) | (MEMORY.readByte(base, offset + i++) & 0x3F);
+            if (cp < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                sb.append((char) cp);
+            } else {
+                sb.append(Character.highSurrogate(cp));
+                sb.append(Character.lowSurrogate(cp));
+            }
+        }
+    }
+
+    /**
+     * Encode a value into the field at base + offset.
+     *
+     * @param base     object or null for native memory
+     * @param offset   within the object or the address
+     * @param maxBytes of encoded text
+     * @param encoding of the text
+     * @param cs       to encode, may be null
+     * @throws IllegalArgumentException if the encoded value is longer than maxBytes
+     */
+    public static void write(Object base, long offset, int maxBytes, Encoding encoding, CharSequence cs)
+            throws IllegalArgumentException {
+        int length = cs == null ? -1
+                : encoding == Encoding.LATIN1 ? cs.length() : utf8Length(cs);
+        if (length > maxBytes)
+            throw new IllegalArgumentException("Encoded length " + length + " exceeds the maxBytes " + maxBytes);
+
+        // other writers wait for an odd sequence to become even.
+        int seq;
+        do {
+            seq = MEMORY.readVolatileInt(base, offset + SEQUENCE);
+        } while ((seq & 1) != 0 || !MEMORY.compareAndSwapInt(base, offset + SEQUENCE, seq, seq + 1));
+
+        MEMORY.storeFence();
+        if (length > 0) {
+            if (encoding == Encoding.LATIN1)
+                writeLatin1(base, offset + DATA, cs);
+            else
+                writeUtf8(base, offset + DATA, cs);
+        }
+        MEMORY.writeInt(base, offset + LENGTH, length);
+        MEMORY.writeOrderedInt(base, offset + SEQUENCE, seq + 2);
+    }
+
+    private static void writeLatin1(Object base, long offset, CharSequence cs) {
+        for (int i = 0; i < cs.length(); i++) {
+            char ch = cs.charAt(i);
+            MEMORY.writeByte(base, offset + i, (byte) (ch <= 0xFF ? ch : '?'));
+        }
+    }
+
+    private static void writeUtf8(Object base, long offset, CharSequence cs) {
+        for (int i = 0; i < cs.length(); i++) {
+            int c = cs.charAt(i);
+            if (c < 0x80) {
+                MEMORY.writeByte(base, offset++, (byte) c);
+            } else if (c < 0x800) {
+                MEMORY.writeByte(base, offset++, (byte) (0xC0 | (c >> 6)));
+                MEMORY.writeByte(base, offset++, (byte) (0x80 | (c & 0x3F)));
+            } else {
+                if (Character.isHighSurrogate((char) c) && i + 1 < cs.length()
+                        && Character.isLowSurrogate(cs.charAt(i + 1))) {
+                    c = Character.toCodePoint((char) c, cs.charAt(++i));
+                    MEMORY.writeByte(base, offset++, (byte) (0xF0 | (c >> 18)));
+                    MEMORY.writeByte(base, offset++, (byte) (0x80 | ((c >> 12) & 0x3F)));
+                } else {
+                    MEMORY.writeByte(base, offset++, (byte) (0xE0 | (c >> 12)));
+                }
+                MEMORY.writeByte(base, offset++, (byte) (0x80 | ((c >> 6) & 0x3F)));
+                MEMORY.writeByte(base, offset++, (byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    static int utf8Length(CharSequence cs) {
+        int length = 0;
+        for (int i = 0; i < cs.length(); i++) {
+            char c = cs.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < cs.length()
+                    && Character.isLowSurrogate(cs.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    public long address() {
+        return address;
+    }
+
+    public int maxBytes() {
+        return maxBytes;
+    }
+
+    public Encoding encoding() {
+        return encoding;
+    }
+
+    @Override
+    public String getValue() {
+        return readString(null, address, maxBytes, encoding);
+    }
+
+    @Override
+    public void setValue(@MaxBytes CharSequence value) {
+        write(null, address, maxBytes, encoding, value);
+    }
+
+    /**
+     * Decode the value into the StringBuilder without creating any objects.
+     *
+     * @param stringBuilder the builder to return
+     * @return the StringBuilder containing the value or null if the value is null
+     */
+    @Override
+    public StringBuilder getUsingValue(StringBuilder stringBuilder) {
+        return read(null, address, maxBytes, encoding, stringBuilder);
+    }
+
+    @Override
+    public void close() {
+        if (owner != null)
+            owner.close();
+    }
+
+    @Override
+    public String toString() {
+        return getValue();
+    }
+
+    public enum Encoding {
+        /**
+         * One byte per character, characters above 0xFF are written as '?'
+         */
+        LATIN1,
+        UTF8
+    }
+}
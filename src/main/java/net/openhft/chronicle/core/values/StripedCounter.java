@@ -0,0 +1,186 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.values;
+
+import net.openhft.chronicle.core.Maths;
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.NativeOwner;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.io.Closeable;
+
+/**
+ * A counter for contended statistics, striped over cache line padded slots in native or mapped
+ * memory, the off heap equivalent of a LongAdder.
+ * <p>
+ * Writers atomically add to the slot for their thread, and readers sum all the slots. The first
+ * cache line holds the number of stripes so another process, e.g. a monitor, can bind to the
+ * counter and read the total.
+ */
+public class StripedCounter implements Closeable {
+    public static final int CACHE_LINE = 64;
+    public static final int DEFAULT_STRIPES = Maths.nextPower2(Runtime.getRuntime().availableProcessors(), 2);
+    private static final Memory MEMORY = OS.memory();
+    private static final long PID_SALT = (long) OS.getProcessId() << 20;
+
+    private final long address;
+    private final int mask;
+    // null if bound to memory owned elsewhere.
+    private final NativeOwner owner;
+
+    /**
+     * Bind to a region of sizeFor(stripes) bytes. If the region is all zeros it is initialised,
+     * otherwise it must have the same number of stripes.
+     *
+     * @param address of the region, 8 byte aligned
+     * @param stripes a power of 2
+     */
+    public StripedCounter(long address, int stripes) {
+        this(address, stripes, null);
+    }
+
+    private StripedCounter(long address, int stripes, NativeOwner owner) {
+        if ((address & 7) != 0)
+            throw new IllegalArgumentException("address must be 8 byte aligned: " + Long.toHexString(address));
+        if (stripes < 1 || Integer.bitCount(stripes) != 1)
+            throw new IllegalArgumentException("stripes must be a power of 2: " + stripes);
+        if (!MEMORY.compareAndSwapInt(address, 0, stripes)) {
+            int existing = MEMORY.readVolatileInt(address);
+            if (existing != stripes)
+                throw new IllegalStateException("Counter has " + existing + " stripes not " + stripes);
+        }
+        this.address = address;
+        this.mask = stripes - 1;
+        this.owner = owner;
+    }
+
+    /**
+     * Bind to a counter which has already been initialised e.g. by another process.
+     *
+     * @param address of the region
+     * @return the counter
+     */
+    public static StripedCounter bind(long address) {
+        int stripes = MEMORY.readVolatileInt(address);
+        if (stripes == 0)
+            throw new IllegalStateException("Counter not initialised");
+        return new StripedCounter(address, stripes);
+    }
+
+    /**
+     * Allocate a counter in native memory which is freed on close(), or once collected if not closed.
+     *
+     * @param stripes a power of 2
+     * @return the counter
+     */
+    public static StripedCounter allocate(int stripes) {
+        NativeOwner owner = NativeOwner.allocateZeroed(sizeFor(stripes));
+        return new StripedCounter(owner.address(), stripes, owner);
+    }
+
+    /**
+     * @param stripes a power of 2
+     * @return the size of the region needed.
+     */
+    public static long sizeFor(int stripes) {
+        return (long) CACHE_LINE * (stripes + 1);
+    }
+
+    public long address() {
+        return address;
+    }
+
+    public int stripes() {
+        return mask + 1;
+    }
+
+    /**
+     * @return the stripe the current thread adds to.
+     */
+    public int stripe() {
+        // spread threads from different processes over different stripes.
+        long h = Maths.agitate(Thread.currentThread().getId() ^ PID_SALT);
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long delta) {
+        MEMORY.addLong(slot(stripe()), delta);
+    }
+
+    /**
+     * Add to a specific stripe, e.g. the CPU id for a thread bound to a CPU.
+     *
+     * @param stripe to add to, wrapped to the number of stripes.
+     * @param delta  to add
+     */
+    public void add(int stripe, long delta) {
+        MEMORY.addLong(slot(stripe & mask), delta);
+    }
+
+    private long slot(int stripe) {
+        return address + (long) CACHE_LINE * (stripe + 1);
+    }
+
+    /**
+     * @return the sum of all the stripes, which isn't a snapshot if other threads are adding.
+     */
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i <= mask; i++)
+            sum += MEMORY.readVolatileLong(slot(i));
+        return sum;
+    }
+
+    /**
+     * Set all the stripes to zero. Concurrent adds may be lost.
+     */
+    public void reset() {
+        for (int i = 0; i <= mask; i++)
+            MEMORY.writeOrderedLong(slot(i), 0L);
+    }
+
+    /**
+     * Sum the stripes and subtract what was read so no concurrent adds are lost.
+     *
+     * @return the sum before it was reset.
+     */
+    public long sumThenReset() {
+        long sum = 0;
+        for (int i = 0; i <= mask; i++) {
+            long slot = slot(i);
+            long value = MEMORY.readVolatileLong(slot);
+            if (value != 0)
+                MEMORY.addLong(slot, -value);
+            sum += value;
+        }
+        return sum;
+    }
+
+    @Override
+    public void close() {
+        if (owner != null)
+            owner.close();
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(sum());
+    }
+}
@@ -0,0 +1,594 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.values;
+
+import net.openhft.chronicle.core.ClassLoading;
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.values.ValueModel.FieldModel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates the byte code for a class implementing a value interface with each field at a fixed
+ * offset, either in native memory bound by address, or in a byte[] on the heap.
+ * <p>
+ * Every generated method is straight line code so no stack map frames are needed.
+ */
+final class ValueGenerator {
+    private static final String OBJECT = "java/lang/Object";
+    private static final String MEMORY = "net/openhft/chronicle/core/Memory";
+    private static final String MEMORY_DESC = "L" + MEMORY + ";";
+    private static final String OS_NAME = "net/openhft/chronicle/core/OS";
+    private static final String STRING_VALUE = "net/openhft/chronicle/core/values/NativeStringValue";
+    private static final String ENCODING = STRING_VALUE + "$Encoding";
+    private static final String FLYWEIGHT = "net/openhft/chronicle/core/values/Flyweight";
+    private static final long BYTE_ARRAY_BASE = OS.memory().arrayBaseOffset(byte[].class);
+    private static final int MAX_STACK = 10;
+
+    private final ValueModel model;
+    private final boolean heap;
+    private final String className;
+    private final ConstantPool pool = new ConstantPool();
+
+    private ValueGenerator(ValueModel model, boolean heap) {
+        this.model = model;
+        this.heap = heap;
+        this.className = model.type.getName() + (heap ? "$$Heap" : "$$Native");
+    }
+
+    static Class<?> define(ValueModel model, boolean heap) {
+        ValueGenerator generator = new ValueGenerator(model, heap);
+        ClassLoader classLoader = model.type.getClassLoader();
+        // ClassValue can compute the class on several threads at once, but it can only be defined once.
+        synchronized (model) {
+            try {
+                return Class.forName(generator.className, false, classLoader);
+            } catch (ClassNotFoundException expected) {
+                // not defined yet.
+            }
+            byte[] bytes = generator.generate();
+            try {
+                return ClassLoading.defineClass(classLoader, generator.className, bytes);
+            } catch (LinkageError e) {
+                // defined by another path into the same class loader.
+                try {
+                    return Class.forName(generator.className, false, classLoader);
+                } catch (ClassNotFoundException cnfe) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static String internalName(Class<?> clazz) {
+        return clazz.getName().replace('.', '/');
+    }
+
+    static String descriptor(Class<?> clazz) {
+        if (clazz == void.class) return "V";
+        if (clazz == boolean.class) return "Z";
+        if (clazz == byte.class) return "B";
+        if (clazz == short.class) return "S";
+        if (clazz == char.class) return "C";
+        if (clazz == int.class) return "I";
+        if (clazz == long.class) return "J";
+        if (clazz == float.class) return "F";
+        if (clazz == double.class) return "D";
+        if (clazz.isArray()) return "[" + descriptor(clazz.getComponentType());
+        return "L" + internalName(clazz) + ";";
+    }
+
+    static String descriptor(Method method) {
+        StringBuilder sb = new StringBuilder("(");
+        for (Class<?> param : method.getParameterTypes())
+            sb.append(descriptor(param));
+        return sb.append(')').append(descriptor(method.getReturnType())).toString();
+    }
+
+    private static int slots(Method method) {
+        int slots = 1;
+        for (Class<?> param : method.getParameterTypes())
+            slots += param == long.class || param == double.class ? 2 : 1;
+        return slots;
+    }
+
+    byte[] generate() {
+        List<byte[]> methods = new ArrayList<>();
+        methods.add(classInit());
+        methods.add(constructor());
+        if (!heap) {
+            methods.add(method("bindAddress", "(J)V", 3, code -> {
+                code.aload0();
+                code.op(0x1f); // lload_1
+                code.field(0xb5, className, "address", "J");
+                code.op(0xb1);
+            }));
+            methods.add(method("address", "()J", 1, code -> {
+                code.aload0();
+                code.field(0xb4, className, "address", "J");
+                code.op(0xad);
+            }));
+            methods.add(method("size", "()J", 1, code -> {
+                code.ldc2(model.size);
+                code.op(0xad);
+            }));
+        }
+        for (FieldModel field : model.fields) {
+            if (field.getter != null)
+                methods.add(getter(field, field.getter));
+            if (field.setter != null)
+                methods.add(setter(field, field.setter));
+            if (field.volatileGetter != null)
+                methods.add(getter(field, field.volatileGetter));
+            if (field.orderedSetter != null)
+                methods.add(setter(field, field.orderedSetter));
+            if (field.compareAndSwap != null)
+                methods.add(compareAndSwap(field));
+            if (field.adder != null)
+                methods.add(adder(field));
+            if (field.atomicAdder != null)
+                methods.add(atomicAdder(field));
+            if (field.getUsing != null)
+                methods.add(getUsing(field));
+        }
+
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(baos);
+            int thisClass = pool.classRef(className.replace('.', '/'));
+            int superClass = pool.classRef(OBJECT);
+            int iface = pool.classRef(internalName(model.type));
+            int flyweight = heap ? 0 : pool.classRef(FLYWEIGHT);
+            int memoryName = pool.utf8("MEMORY"), memoryDesc = pool.utf8(MEMORY_DESC);
+            int fieldName = pool.utf8(heap ? "store" : "address"), fieldDesc = pool.utf8(heap ? "[B" : "J");
+
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(52); // Java 8
+            pool.writeTo(out);
+            out.writeShort(0x0031); // public final super
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            if (heap) {
+                out.writeShort(1);
+                out.writeShort(iface);
+            } else {
+                out.writeShort(2);
+                out.writeShort(iface);
+                out.writeShort(flyweight);
+            }
+
+            out.writeShort(2);
+            writeField(out, 0x001A, memoryName, memoryDesc); // private static final
+            writeField(out, heap ? 0x0012 : 0x0002, fieldName, fieldDesc);
+
+            out.writeShort(methods.size());
+            for (byte[] method : methods)
+                out.write(method);
+            out.writeShort(0); // no class attributes
+            return baos.toByteArray();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void writeField(DataOutputStream out, int access, int name, int desc) throws IOException {
+        out.writeShort(access);
+        out.writeShort(name);
+        out.writeShort(desc);
+        out.writeShort(0);
+    }
+
+    private byte[] classInit() {
+        return method(0x0008, "<clinit>", "()V", 0, code -> {
+            code.method(0xb8, OS_NAME, "memory", "()" + MEMORY_DESC);
+            code.field(0xb3, className, "MEMORY", MEMORY_DESC);
+            code.op(0xb1);
+        });
+    }
+
+    private byte[] constructor() {
+        return method("<init>", "()V", 1, code -> {
+            code.aload0();
+            code.method(0xb7, OBJECT, "<init>", "()V");
+            if (heap) {
+                code.aload0();
+                code.ldc(Math.toIntExact(model.size));
+                code.op(0xbc, 8); // newarray byte
+                code.field(0xb5, className, "store", "[B");
+            }
+            code.op(0xb1);
+        });
+    }
+
+    /**
+     * Push MEMORY, the base object and the offset of a field.
+     */
+    private void pushLocation(Code code, FieldModel field) {
+        code.field(0xb2, className, "MEMORY", MEMORY_DESC);
+        pushBaseAndOffset(code, field);
+    }
+
+    private void pushBaseAndOffset(Code code, FieldModel field) {
+        if (heap) {
+            code.aload0();
+            code.field(0xb4, className, "store", "[B");
+            code.ldc2(BYTE_ARRAY_BASE + field.offset);
+        } else {
+            code.op(0x01); // aconst_null
+            code.aload0();
+            code.field(0xb4, className, "address", "J");
+            code.ldc2(field.offset);
+            code.op(0x61); // ladd
+        }
+    }
+
+    private void pushStringArgs(Code code, FieldModel field) {
+        pushBaseAndOffset(code, field);
+        code.ldc(field.maxBytes());
+        code.field(0xb2, ENCODING, "UTF8", "L" + ENCODING + ";");
+    }
+
+    private byte[] getter(FieldModel field, Method method) {
+        boolean isVolatile = method == field.volatileGetter;
+        return method(method.getName(), descriptor(method), 1, code -> {
+            Class<?> type = field.type;
+            if (field.isString()) {
+                pushStringArgs(code, field);
+                code.method(0xb8, STRING_VALUE, "readString", "(Ljava/lang/Object;JIL" + ENCODING + ";)Ljava/lang/String;");
+                code.op(0xb0);
+                return;
+            }
+            pushLocation(code, field);
+            String desc = memoryType(type);
+            String name = (isVolatile ? "readVolatile" : "read") + memoryName(type);
+            code.interfaceMethod(MEMORY, name, "(Ljava/lang/Object;J)" + desc, 4);
+            if (type == boolean.class) {
+                // (b | -b) >>> 31 is 1 for any non zero byte, without a branch.
+                code.op(0x59); // dup
+                code.op(0x74); // ineg
+                code.op(0x80); // ior
+                code.op(0x10, 31); // bipush
+                code.op(0x7c); // iushr
+            } else if (type == char.class) {
+                code.op(0x92); // i2c
+            }
+            code.op(returnOp(type));
+        });
+    }
+
+    private byte[] setter(FieldModel field, Method method) {
+        boolean isOrdered = method == field.orderedSetter;
+        return method(method.getName(), descriptor(method), slots(method), code -> {
+            Class<?> type = field.type;
+            if (field.isString()) {
+                pushStringArgs(code, field);
+                code.op(0x2b); // aload_1
+                code.method(0xb8, STRING_VALUE, "write", "(Ljava/lang/Object;JIL" + ENCODING + ";Ljava/lang/CharSequence;)V");
+                code.op(0xb1);
+                return;
+            }
+            pushLocation(code, field);
+            code.op(loadOp(type, 1));
+            if (type == boolean.class)
+                code.op(0x91); // i2b
+            else if (type == char.class)
+                code.op(0x93); // i2s
+            String desc = memoryType(type);
+            String name = (isOrdered ? "writeOrdered" : "write") + memoryName(type);
+            code.interfaceMethod(MEMORY, name, "(Ljava/lang/Object;J" + desc + ")V", 4 + (desc.equals("J") || desc.equals("D") ? 2 : 1));
+            code.op(0xb1);
+        });
+    }
+
+    private byte[] compareAndSwap(FieldModel field) {
+        Method method = field.compareAndSwap;
+        return method(method.getName(), descriptor(method), slots(method), code -> {
+            pushLocation(code, field);
+            if (field.type == long.class) {
+                code.op(0x1f); // lload_1
+                code.op(0x21); // lload_3
+                code.interfaceMethod(MEMORY, "compareAndSwapLong", "(Ljava/lang/Object;JJJ)Z", 8);
+            } else {
+                code.op(0x1b); // iload_1
+                code.op(0x1c); // iload_2
+                code.interfaceMethod(MEMORY, "compareAndSwapInt", "(Ljava/lang/Object;JII)Z", 6);
+            }
+            code.op(0xac);
+        });
+    }
+
+    /**
+     * Read, add and write the field, returning the new value.
+     */
+    private byte[] adder(FieldModel field) {
+        Method method = field.adder;
+        boolean isLong = field.type == long.class;
+        return method(method.getName(), descriptor(method), slots(method) + (isLong ? 2 : 1), code -> {
+            pushLocation(code, field);
+            if (isLong) {
+                code.interfaceMethod(MEMORY, "readLong", "(Ljava/lang/Object;J)J", 4);
+                code.op(0x1f); // lload_1
+                code.op(0x61); // ladd
+                code.op(0x42); // lstore_3
+                pushLocation(code, field);
+                code.op(0x21); // lload_3
+                code.interfaceMethod(MEMORY, "writeLong", "(Ljava/lang/Object;JJ)V", 6);
+                code.op(0x21); // lload_3
+                code.op(0xad);
+            } else {
+                code.interfaceMethod(MEMORY, "readInt", "(Ljava/lang/Object;J)I", 4);
+                code.op(0x1b); // iload_1
+                code.op(0x60); // iadd
+                code.op(0x3d); // istore_2
+                pushLocation(code, field);
+                code.op(0x1c); // iload_2
+                code.interfaceMethod(MEMORY, "writeInt", "(Ljava/lang/Object;JI)V", 5);
+                code.op(0x1c); // iload_2
+                code.op(0xac);
+            }
+        });
+    }
+
+    private byte[] atomicAdder(FieldModel field) {
+        Method method = field.atomicAdder;
+        return method(method.getName(), descriptor(method), slots(method), code -> {
+            pushLocation(code, field);
+            if (field.type == long.class) {
+                code.op(0x1f); // lload_1
+                code.interfaceMethod(MEMORY, "addLong", "(Ljava/lang/Object;JJ)J", 6);
+                code.op(0xad);
+            } else {
+                code.op(0x1b); // iload_1
+                code.interfaceMethod(MEMORY, "addInt", "(Ljava/lang/Object;JI)I", 5);
+                code.op(0xac);
+            }
+        });
+    }
+
+    private byte[] getUsing(FieldModel field) {
+        Method method = field.getUsing;
+        return method(method.getName(), descriptor(method), slots(method), code -> {
+            pushStringArgs(code, field);
+            code.op(0x2b); // aload_1
+            code.method(0xb8, STRING_VALUE, "read", "(Ljava/lang/Object;JIL" + ENCODING + ";Ljava/lang/StringBuilder;)Ljava/lang/StringBuilder;");
+            code.op(0xb0);
+        });
+    }
+
+    // the Memory method for a type, char and boolean are stored as short and byte
+    private static String memoryName(Class<?> type) {
+        if (type == boolean.class || type == byte.class) return "Byte";
+        if (type == char.class || type == short.class) return "Short";
+        if (type == int.class) return "Int";
+        if (type == long.class) return "Long";
+        if (type == float.class) return "Float";
+        return "Double";
+    }
+
+    private static String memoryType(Class<?> type) {
+        if (type == boolean.class || type == byte.class) return "B";
+        if (type == char.class || type == short.class) return "S";
+        return descriptor(type);
+    }
+
+    private static int returnOp(Class<?> type) {
+        if (type == long.class) return 0xad;
+        if (type == float.class) return 0xae;
+        if (type == double.class) return 0xaf;
+        return 0xac;
+    }
+
+    private static int loadOp(Class<?> type, int slot) {
+        int base = type == long.class ? 0x1e : type == float.class ? 0x22 : type == double.class ? 0x26 : 0x1a;
+        return base + slot;
+    }
+
+    private byte[] method(String name, String desc, int maxLocals, CodeBuilder builder) {
+        return method(0x0001, name, desc, maxLocals, builder);
+    }
+
+    private byte[] method(int access, String name, String desc, int maxLocals, CodeBuilder builder) {
+        Code code = new Code();
+        builder.build(code);
+        byte[] bytes = code.toByteArray();
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(baos);
+            out.writeShort(access);
+            out.writeShort(pool.utf8(name));
+            out.writeShort(pool.utf8(desc));
+            out.writeShort(1);
+            out.writeShort(pool.utf8("Code"));
+            out.writeInt(12 + bytes.length);
+            out.writeShort(MAX_STACK);
+            out.writeShort(maxLocals);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.writeShort(0); // exceptions
+            out.writeShort(0); // attributes
+            return baos.toByteArray();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @FunctionalInterface
+    interface CodeBuilder {
+        void build(Code code);
+    }
+
+    final class Code extends ByteArrayOutputStream {
+        void op(int op) {
+            write(op);
+        }
+
+        void op(int op, int arg) {
+            write(op);
+            write(arg);
+        }
+
+        void aload0() {
+            write(0x2a);
+        }
+
+        void u2(int value) {
+            write(value >>> 8);
+            write(value);
+        }
+
+        void ldc(int value) {
+            if (value == (short) value) {
+                op(0x11); // sipush
+                u2(value);
+            } else {
+                op(0x13); // ldc_w
+                u2(pool.integer(value));
+            }
+        }
+
+        void ldc2(long value) {
+            op(0x14);
+            u2(pool.longValue(value));
+        }
+
+        void field(int op, String owner, String name, String desc) {
+            op(op);
+            u2(pool.memberRef(9, owner.replace('.', '/'), name, desc));
+        }
+
+        void method(int op, String owner, String name, String desc) {
+            op(op);
+            u2(pool.memberRef(10, owner, name, desc));
+        }
+
+        void interfaceMethod(String owner, String name, String desc, int argSlots) {
+            op(0xb9);
+            u2(pool.memberRef(11, owner, name, desc));
+            write(argSlots);
+            write(0);
+        }
+    }
+
+    static final class ConstantPool {
+        private final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(baos);
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private int count = 1;
+
+        int utf8(String s) {
+            Integer index = indexes.get("U" + s);
+            if (index != null)
+                return index;
+            try {
+                out.writeByte(1);
+                out.writeUTF(s);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+            return add("U" + s, 1);
+        }
+
+        int classRef(String internalName) {
+            Integer index = indexes.get("C" + internalName);
+            if (index != null)
+                return index;
+            int name = utf8(internalName);
+            write(7, name);
+            return add("C" + internalName, 1);
+        }
+
+        int integer(int value) {
+            Integer index = indexes.get("I" + value);
+            if (index != null)
+                return index;
+            try {
+                out.writeByte(3);
+                out.writeInt(value);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+            return add("I" + value, 1);
+        }
+
+        int longValue(long value) {
+            Integer index = indexes.get("J" + value);
+            if (index != null)
+                return index;
+            try {
+                out.writeByte(5);
+                out.writeLong(value);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+            // a long takes two entries.
+            return add("J" + value, 2);
+        }
+
+        int memberRef(int tag, String owner, String name, String desc) {
+            String key = "M" + tag + owner + '.' + name + desc;
+            Integer index = indexes.get(key);
+            if (index != null)
+                return index;
+            int classRef = classRef(owner);
+            int nameAndType = nameAndType(name, desc);
+            write(tag, classRef, nameAndType);
+            return add(key, 1);
+        }
+
+        private int nameAndType(String name, String desc) {
+            String key = "N" + name + desc;
+            Integer index = indexes.get(key);
+            if (index != null)
+                return index;
+            int nameIndex = utf8(name);
+            int descIndex = utf8(desc);
+            write(12, nameIndex, descIndex);
+            return add(key, 1);
+        }
+
+        private void write(int tag, int... shorts) {
+            try {
+                out.writeByte(tag);
+                for (int s : shorts)
+                    out.writeShort(s);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        private int add(String key, int entries) {
+            int index = count;
+            indexes.put(key, index);
+            count += entries;
+            return index;
+        }
+
+        void writeTo(DataOutputStream dos) throws IOException {
+            dos.writeShort(count);
+            baos.writeTo(dos);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.values;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+/**
+ * The packed layout of an interface made of getters and setters.
+ */
+final class ValueModel {
+    final Class<?> type;
+    final List<FieldModel> fields;
+    final long size;
+
+    private ValueModel(Class<?> type, List<FieldModel> fields, long size) {
+        this.type = type;
+        this.fields = fields;
+        this.size = size;
+    }
+
+    static ValueModel of(Class<?> type) {
+        if (!type.isInterface())
+            throw new IllegalArgumentException(type + " is not an interface");
+        Map<String, FieldModel> fieldMap = new TreeMap<>();
+        for (Method method : type.getMethods()) {
+            if (!Modifier.isAbstract(method.getModifiers()))
+                continue;
+            addMethod(type, fieldMap, method);
+        }
+        List<FieldModel> fields = new ArrayList<>(fieldMap.values());
+        for (FieldModel field : fields)
+            field.check();
+        // largest alignment first to minimise padding, the name is a tie breaker for a stable layout.
+        fields.sort(Comparator.comparingInt(FieldModel::sortOrder).thenComparing(f -> f.name));
+        long offset = 0;
+        for (FieldModel field : fields) {
+            offset = align(offset, field.alignment());
+            field.offset = offset;
+            offset += field.size();
+        }
+        return new ValueModel(type, Collections.unmodifiableList(fields), align(offset, 8));
+    }
+
+    private static long align(long offset, int alignment) {
+        return (offset + alignment - 1) & -alignment;
+    }
+
+    private static void addMethod(Class<?> type, Map<String, FieldModel> fieldMap, Method method) {
+        String name = method.getName();
+        Class<?>[] params = method.getParameterTypes();
+        Class<?> returnType = method.getReturnType();
+        // a field whose name starts with Volatile or Ordered, e.g. getVolatileX with setVolatileX, has plain accessors.
+        if (name.startsWith("getVolatile") && params.length == 0
+                && !hasMethod(type, "set" + name.substring(3), 1)) {
+            field(fieldMap, name, "getVolatile", method, returnType).volatileGetter = method;
+
+        } else if (name.startsWith("setOrdered") && params.length == 1 && returnType == void.class
+                && !hasMethod(type, "get" + name.substring(3), 0) && !hasMethod(type, "is" + name.substring(3), 0)) {
+            field(fieldMap, name, "setOrdered", method, params[0]).orderedSetter = method;
+
+        } else if (name.startsWith("compareAndSwap") && params.length == 2 && params[0] == params[1]
+                && returnType == boolean.class) {
+            field(fieldMap, name, "compareAndSwap", method, params[0]).compareAndSwap = method;
+
+        } else if (name.startsWith("addAtomic") && params.length == 1 && returnType == params[0]
+                && !hasMethod(type, "get" + name.substring(3), 0)) {
+            field(fieldMap, name, "addAtomic", method, returnType).atomicAdder = method;
+
+        } else if (name.startsWith("add") && params.length == 1 && returnType == params[0]) {
+            field(fieldMap, name, "add", method, returnType).adder = method;
+
+        } else if (name.startsWith("getUsing") && params.length == 1 && params[0] == StringBuilder.class
+                && returnType == StringBuilder.class) {
+            field(fieldMap, name, "getUsing", method, String.class).getUsing = method;
+
+        } else if (name.startsWith("get") && params.length == 0 && returnType != void.class) {
+            field(fieldMap, name, "get", method, returnType).getter = method;
+
+        } else if (name.startsWith("is") && params.length == 0 && returnType == boolean.class) {
+            field(fieldMap, name, "is", method, returnType).getter = method;
+
+        } else if (name.startsWith("set") && params.length == 1 && returnType == void.class) {
+            field(fieldMap, name, "set", method, params[0]).setter = method;
+
+        } else {
+            throw new IllegalArgumentException("Unsupported method " + method);
+        }
+    }
+
+    private static boolean hasMethod(Class<?> type, String name, int paramCount) {
+        for (Method method : type.getMethods())
+            if (method.getName().equals(name) && method.getParameterCount() == paramCount)
+                return true;
+        return false;
+    }
+
+    private static FieldModel field(Map<String, FieldModel> fieldMap, String methodName, String prefix, Method method, Class<?> type) {
+        String name = methodName.substring(prefix.length());
+        if (name.isEmpty())
+            throw new IllegalArgumentException("No field name for " + method);
+        if (type == CharSequence.class)
+            type = String.class;
+        if (!type.isPrimitive() && type != String.class)
+            throw new IllegalArgumentException("Unsupported type " + type + " for " + method);
+        FieldModel field = fieldMap.computeIfAbsent(name, FieldModel::new);
+        if (field.type == null)
+            field.type = type;
+        else if (field.type != type)
+            throw new IllegalArgumentException("Type " + type + " for " + method + " doesn't match " + field.type);
+        return field;
+    }
+
+    static final class FieldModel {
+        final String name;
+        Class<?> type;
+        long offset;
+        Method getter, setter, volatileGetter, orderedSetter, compareAndSwap, adder, atomicAdder, getUsing;
+
+        FieldModel(String name) {
+            this.name = name;
+        }
+
+        void check() {
+            boolean intOrLong = type == int.class || type == long.class;
+            if ((volatileGetter != null || orderedSetter != null || compareAndSwap != null
+                    || adder != null || atomicAdder != null) && !intOrLong)
+                throw new IllegalArgumentException("Volatile, ordered, CAS and add access is only supported for int and long fields, not " + name);
+            if (getUsing != null && type != String.class)
+                throw new IllegalArgumentException("getUsing" + name + " requires a String field");
+        }
+
+        boolean isString() {
+            return type == String.class;
+        }
+
+        int maxBytes() {
+            return setter == null ? NativeStringValue.DEFAULT_MAX_BYTES : NativeStringValue.maxBytesFor(setter);
+        }
+
+        int size() {
+            if (isString())
+                return Math.toIntExact(NativeStringValue.sizeFor(maxBytes()));
+            if (type == boolean.class || type == byte.class)
+                return 1;
+            if (type == short.class || type == char.class)
+                return 2;
+            if (type == int.class || type == float.class)
+                return 4;
+            return 8;
+        }
+
+        int alignment() {
+            // the sequence of a string field is CASed.
+            return isString() ? 4 : size();
+        }
+
+        int sortOrder() {
+            return isString() ? 1 : -size();
+        }
+    }
+}
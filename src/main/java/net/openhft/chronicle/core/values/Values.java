@@ -0,0 +1,83 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.values;
+
+import net.openhft.chronicle.core.ClassLocal;
+import net.openhft.chronicle.core.util.ObjectUtils;
+
+/**
+ * Generate flyweight implementations of interfaces made of getters and setters.
+ * <p>
+ * Supported methods are getX/isX, setX, getVolatileX, setOrderedX, compareAndSwapX, addX and
+ * addAtomicX for int and long fields, e.g. LongValue and IntValue, and getUsingX(StringBuilder) for
+ * String fields. addX and addAtomicX return the new value. The size of a String or CharSequence
+ * field is set with @MaxBytes on the setter's parameter, and the text is always stored as UTF-8.
+ * <p>
+ * getVolatileX, setOrderedX and addAtomicX are plain accessors of a field VolatileX, OrderedX or
+ * AtomicX only if the interface also has setVolatileX, getOrderedX/isOrderedX or getAtomicX.
+ */
+public enum Values {
+    ;
+
+    static final ClassLocal<ValueModel> MODELS = ClassLocal.withInitial(ValueModel::of);
+    static final ClassLocal<Class<?>> NATIVE_CLASSES = ClassLocal.withInitial(c -> ValueGenerator.define(MODELS.get(c), false));
+    static final ClassLocal<Class<?>> HEAP_CLASSES = ClassLocal.withInitial(c -> ValueGenerator.define(MODELS.get(c), true));
+
+    /**
+     * @param type of the interface
+     * @return the number of bytes needed for one value.
+     */
+    public static long sizeOf(Class<?> type) {
+        return MODELS.get(type).size;
+    }
+
+    /**
+     * @param type of the interface
+     * @return a class which implements type and Flyweight
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Class<? extends T> nativeClassFor(Class<T> type) {
+        return (Class<? extends T>) NATIVE_CLASSES.get(type);
+    }
+
+    /**
+     * @param type of the interface
+     * @return a class which implements type backed by a byte[] of the same layout.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Class<? extends T> heapClassFor(Class<T> type) {
+        return (Class<? extends T>) HEAP_CLASSES.get(type);
+    }
+
+    /**
+     * Create a flyweight which must be bound with {@link Flyweight#bindAddress(long)} before use.
+     *
+     * @param type of the interface
+     * @return an unbound reference which can be cast to Flyweight.
+     */
+    public static <T> T newNativeReference(Class<T> type) {
+        return ObjectUtils.newInstance(nativeClassFor(type));
+    }
+
+    /**
+     * @param type of the interface
+     * @return a new value on the heap, with all fields zero.
+     */
+    public static <T> T newHeapInstance(Class<T> type) {
+        return ObjectUtils.newInstance(heapClassFor(type));
+    }
+}
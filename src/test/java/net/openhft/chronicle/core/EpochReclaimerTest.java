@@ -0,0 +1,139 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class EpochReclaimerTest {
+    @Test
+    public void freedWhenReadersLeave() {
+        EpochReclaimer reclaimer = new EpochReclaimer();
+        EpochReclaimer.Reader reader = reclaimer.reader();
+        assertSame(reader, reclaimer.reader());
+        AtomicInteger freed = new AtomicInteger();
+
+        reader.enter();
+        reader.enter();
+        reclaimer.retire(freed::incrementAndGet);
+        assertEquals(0, freed.get());
+        reader.exit();
+        assertTrue(reader.inCriticalRegion());
+        assertEquals(0, reclaimer.reclaim());
+        reader.exit();
+        assertEquals(1, reclaimer.reclaim());
+        assertEquals(1, freed.get());
+
+        // a reader which entered after the retire doesn't hold it up.
+        reader.enter();
+        EpochReclaimer.Reader other = reclaimer.register();
+        other.enter();
+        reclaimer.retire(freed::incrementAndGet);
+        reader.exit();
+        reader.enter();
+        assertEquals(0, reclaimer.reclaim());
+        other.close();
+        assertEquals(2, freed.get());
+        reader.exit();
+        reclaimer.close();
+    }
+
+    @Test
+    public void closedReaderIsReplaced() {
+        EpochReclaimer reclaimer = new EpochReclaimer();
+        EpochReclaimer.Reader closed = reclaimer.reader();
+        closed.close();
+        try {
+            closed.enter();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        EpochReclaimer.Reader reader = reclaimer.reader();
+        assertNotSame(closed, reader);
+        AtomicInteger freed = new AtomicInteger();
+        reader.enter();
+        reclaimer.retire(freed::incrementAndGet);
+        assertEquals(0, freed.get());
+        reader.exit();
+        reclaimer.reclaim();
+        assertEquals(1, freed.get());
+        reclaimer.close();
+    }
+
+    @Test
+    public void retireMemory() {
+        EpochReclaimer reclaimer = new EpochReclaimer();
+        Memory memory = OS.memory();
+        long used = memory.nativeMemoryUsed();
+        long address = memory.allocate(1024);
+        reclaimer.reader().enter();
+        reclaimer.retireMemory(address, 1024);
+        assertEquals(1, reclaimer.retiredCount());
+        assertEquals(used + 1024, memory.nativeMemoryUsed());
+        reclaimer.reader().exit();
+        reclaimer.reclaim();
+        assertEquals(0, reclaimer.retiredCount());
+        assertEquals(used, memory.nativeMemoryUsed());
+        reclaimer.close();
+    }
+
+    @Test
+    public void concurrentReaders() throws InterruptedException {
+        EpochReclaimer reclaimer = new EpochReclaimer();
+        AtomicLong current = new AtomicLong(1);
+        // true for versions which have been freed.
+        AtomicBoolean[] freed = new AtomicBoolean[2001];
+        for (int i = 0; i < freed.length; i++)
+            freed[i] = new AtomicBoolean();
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger errors = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                EpochReclaimer.Reader reader = reclaimer.reader();
+                while (running.get()) {
+                    reader.enter();
+                    int version = (int) current.get();
+                    for (int i = 0; i < 10; i++)
+                        if (freed[version].get())
+                            errors.incrementAndGet();
+                    reader.exit();
+                }
+                reader.close();
+            });
+            threads[t].start();
+        }
+        for (int v = 1; v < freed.length - 1; v++) {
+            current.set(v + 1);
+            int version = v;
+            reclaimer.retire(() -> freed[version].set(true));
+        }
+        running.set(false);
+        for (Thread t : threads)
+            t.join();
+        reclaimer.reclaim();
+        assertEquals(0, errors.get());
+        assertEquals(0, reclaimer.retiredCount());
+        reclaimer.close();
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class HasherTest {
+    @Test
+    public void testSameValuesSameHash() {
+        Hasher hasher = new Hasher();
+        long h = hasher.add(1234L).add("EURUSD").add(1.2345).hash64();
+        long low = hasher.hash128Low(), high = hasher.hash128High();
+        assertEquals(h, hasher.reset().add(1234L).add(new StringBuilder("EURUSD")).add(1.2345).hash64());
+        assertEquals(low, hasher.hash128Low());
+        assertEquals(high, hasher.hash128High());
+        assertNotEquals(h, hasher.reset().add(1234L).add(1.2345).add("EURUSD").hash64());
+        // where one string ends matters.
+        assertNotEquals(hasher.reset().add("ab").add("c").hash64(), hasher.reset().add("a").add("bc").hash64());
+        assertNotEquals(hasher.reset().add((CharSequence) null).hash64(), hasher.reset().add("").hash64());
+    }
+
+    @Test
+    public void testBytesAndMemory() {
+        Hasher hasher = new Hasher();
+        byte[] bytes = "Hello World, this is a test".getBytes(StandardCharsets.ISO_8859_1);
+        Memory memory = OS.memory();
+        long address = memory.allocate(bytes.length);
+        try {
+            for (int i = 0; i < bytes.length; i++)
+                memory.writeByte(address + i, bytes[i]);
+            for (int len = 0; len <= bytes.length - 2; len++)
+                assertEquals(hasher.reset().add(bytes, 2, len).hash64(),
+                        hasher.reset().addMemory(address + 2, len).hash64());
+        } finally {
+            memory.freeMemory(address, bytes.length);
+        }
+    }
+
+    @Test
+    public void testDistribution() {
+        Hasher hasher = new Hasher();
+        Set<Long> hashes = new HashSet<>();
+        Set<Long> highs = new HashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            hashes.add(hasher.reset().add(i).add(i >> 8).hash64() & ((1 << 20) - 1));
+            highs.add(hasher.hash128High());
+        }
+        // a random hash would have about 95,400 distinct values out of 1M.
+        assertEquals(95_400, hashes.size(), 600);
+        assertEquals(100_000, highs.size());
+    }
+}
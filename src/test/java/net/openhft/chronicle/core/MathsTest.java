@@ -20,10 +20,14 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import java.math.BigDecimal;
+import java.nio.CharBuffer;
 import java.security.SecureRandom;
+import java.util.HashSet;
 import java.util.Random;
+import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * User: peter.lawrey
@@ -53,6 +57,39 @@ public class MathsTest {
         }
     }
 
+    @Test
+    public void testLongHashSameForAllCharSequences() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            String s = sb.toString();
+            long expected = Maths.longHash(s);
+            assertEquals(expected, Maths.longHash(sb));
+            assertEquals(expected, Maths.longHash(CharBuffer.wrap(s)));
+            assertEquals(expected, Maths.longHash(s.toCharArray(), s.length()));
+            sb.append((char) ('A' + i * 397 % 1024));
+        }
+        assertTrue(Maths.longHash("") != Maths.longHash("\u0000"));
+    }
+
+    @Test
+    public void testHashShortSimilarKeys() {
+        Set<Integer> hashes = new HashSet<>();
+        Set<Integer> buckets = new HashSet<>();
+        StringBuilder sb = new StringBuilder();
+        for (char a = 'A'; a <= 'Z'; a++)
+            for (char b = 'A'; b <= 'Z'; b++)
+                for (char c = 'A'; c <= 'Z'; c++) {
+                    sb.setLength(0);
+                    sb.append(a).append(b).append(c).append(".L");
+                    int h = Maths.hash(sb);
+                    hashes.add(h);
+                    buckets.add(h & (32 * 1024 - 1));
+                }
+        assertEquals(26 * 26 * 26, hashes.size());
+        // a random hash would fill about 13,400 of the 32K buckets.
+        assertTrue(buckets.size() > 13000);
+    }
+
     @Test
     @Ignore("Long running, avg score = 6879")
     public void testRandomness() {
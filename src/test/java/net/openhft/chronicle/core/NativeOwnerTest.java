@@ -0,0 +1,79 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+import static org.junit.Assert.*;
+
+public class NativeOwnerTest {
+    private static final Memory MEMORY = OS.memory();
+
+    @Test
+    public void explicitRelease() {
+        long used = MEMORY.nativeMemoryUsed();
+        NativeOwner owner = NativeOwner.allocate(256);
+        assertEquals(used + 256, MEMORY.nativeMemoryUsed());
+        MEMORY.writeLong(owner.address(), 123L);
+        assertTrue(owner.tryReserve());
+        owner.release();
+        assertEquals(used + 256, MEMORY.nativeMemoryUsed());
+        owner.close();
+        assertEquals(used, MEMORY.nativeMemoryUsed());
+        assertFalse(owner.tryReserve());
+        try {
+            owner.release();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(used, MEMORY.nativeMemoryUsed());
+    }
+
+    @Test
+    public void releasedWhenDropped() throws InterruptedException {
+        long used = MEMORY.nativeMemoryUsed();
+        long collected = NativeOwner.releasedByCollector();
+        NativeOwner.allocate(1024);
+        for (int i = 0; i < 100 && MEMORY.nativeMemoryUsed() != used; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertEquals(used, MEMORY.nativeMemoryUsed());
+        assertEquals(collected + 1, NativeOwner.releasedByCollector());
+    }
+
+    @Test
+    public void mapping() throws IOException {
+        File file = File.createTempFile("native-owner", ".dat");
+        file.deleteOnExit();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(OS.pageSize());
+            NativeOwner owner = NativeOwner.map(raf.getChannel(), FileChannel.MapMode.READ_WRITE, 0, OS.pageSize());
+            MEMORY.writeInt(owner.address(), 0x12345678);
+            owner.release();
+            assertEquals(0, owner.refCount());
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            assertEquals(0x78563412, raf.readInt());
+        }
+    }
+}
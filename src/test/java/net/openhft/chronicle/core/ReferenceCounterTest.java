@@ -0,0 +1,152 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ReferenceCounterTest {
+    @Test
+    public void reserveRelease() {
+        AtomicInteger released = new AtomicInteger();
+        ReferenceCounter rc = ReferenceCounter.onReleased(released::incrementAndGet);
+        assertTrue(rc.tryReserve());
+        assertEquals(2, rc.get());
+        rc.release();
+        rc.releaseOwner();
+        assertEquals(1, released.get());
+        assertFalse(rc.tryReserve());
+        try {
+            rc.reserve();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void stripedReleasedByLastReader() {
+        AtomicInteger released = new AtomicInteger();
+        ReferenceCounter rc = ReferenceCounter.onReleasedStriped(released::incrementAndGet, 4);
+        rc.reserve();
+        assertTrue(rc.tryReserve());
+        assertEquals(3, rc.get());
+        rc.releaseOwner();
+        assertFalse(rc.tryReserve());
+        rc.release();
+        assertEquals(0, released.get());
+        rc.release();
+        assertEquals(1, released.get());
+        assertEquals(0, rc.get());
+        assertFalse(rc.tryReserve());
+        assertEquals(1, released.get());
+    }
+
+    @Test
+    public void stripedReleasedByOwner() {
+        AtomicInteger released = new AtomicInteger();
+        ReferenceCounter rc = ReferenceCounter.onReleasedStriped(released::incrementAndGet, 4);
+        rc.reserve();
+        rc.release();
+        rc.releaseOwner();
+        assertEquals(1, released.get());
+        try {
+            rc.releaseOwner();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void stripedClosed() {
+        AtomicInteger released = new AtomicInteger();
+        ReferenceCounter rc = ReferenceCounter.onReleasedStriped(released::incrementAndGet, 4);
+        ReferenceCounted resource = new ReferenceCounted() {
+            @Override
+            public void reserve() {
+                rc.reserve();
+            }
+
+            @Override
+            public void release() {
+                rc.release();
+            }
+
+            @Override
+            public long refCount() {
+                return rc.get();
+            }
+        };
+        resource.close();
+        assertEquals(1, released.get());
+        assertEquals(0, resource.refCount());
+        assertFalse(rc.tryReserve());
+        try {
+            resource.close();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void stripedReleasedWhileReserved() {
+        AtomicInteger released = new AtomicInteger();
+        ReferenceCounter rc = ReferenceCounter.onReleasedStriped(released::incrementAndGet, 4);
+        rc.reserve();
+        rc.release();
+        assertEquals(0, released.get());
+        assertEquals(1, rc.get());
+        rc.release();
+        assertEquals(1, released.get());
+        assertEquals(0, rc.get());
+    }
+
+    @Test
+    public void stripedConcurrent() throws InterruptedException {
+        for (int run = 0; run < 20; run++) {
+            AtomicInteger released = new AtomicInteger();
+            AtomicInteger reservedAfterRelease = new AtomicInteger();
+            ReferenceCounter rc = ReferenceCounter.onReleasedStriped(released::incrementAndGet, 8);
+            int threads = 8;
+            CountDownLatch started = new CountDownLatch(threads);
+            Thread[] ts = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                ts[t] = new Thread(() -> {
+                    started.countDown();
+                    for (int i = 0; i < 100_000; i++) {
+                        if (!rc.tryReserve())
+                            break;
+                        if (released.get() > 0)
+                            reservedAfterRelease.incrementAndGet();
+                        rc.release();
+                    }
+                });
+                ts[t].start();
+            }
+            started.await();
+            rc.releaseOwner();
+            for (Thread t : ts)
+                t.join();
+            assertEquals(1, released.get());
+            assertEquals(0, reservedAfterRelease.get());
+            assertEquals(0, rc.get());
+        }
+    }
+}
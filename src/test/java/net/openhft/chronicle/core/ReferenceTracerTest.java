@@ -0,0 +1,99 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ReferenceTracerTest {
+    @After
+    public void tearDown() {
+        ReferenceTracer.sampleOneIn(0);
+    }
+
+    @Test
+    public void reportsUnreleased() throws InterruptedException {
+        List<String> reports = new CopyOnWriteArrayList<>();
+        ReferenceTracer.leakListener(reports::add);
+        ReferenceTracer.sampleOneIn(1);
+
+        ReferenceCounter released = ReferenceCounter.onReleased(() -> {
+        });
+        released.reserve();
+        released.release();
+        released.release();
+        leak();
+        released = null;
+
+        for (int i = 0; i < 100 && reports.isEmpty(); i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertEquals(1, reports.size());
+        String report = reports.get(0);
+        assertTrue(report, report.startsWith("ReferenceCounter was not released\ncreated at\n\tat " + getClass().getName() + ".leak"));
+        assertTrue(report, report.contains("\nreserve at\n\tat " + getClass().getName() + ".leak"));
+        assertTrue(report, report.contains("\nrelease at\n\tat " + getClass().getName() + ".leak"));
+    }
+
+    @Test
+    public void failingListener() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        ReferenceTracer.leakListener(report -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("listener failed");
+        });
+        ReferenceTracer.sampleOneIn(1);
+        leak();
+        awaitCalls(calls, 1);
+        leak();
+        awaitCalls(calls, 2);
+        assertEquals(2, calls.get());
+    }
+
+    private static void awaitCalls(AtomicInteger calls, int expected) throws InterruptedException {
+        for (int i = 0; i < 100 && calls.get() < expected; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+    }
+
+    private static void leak() {
+        ReferenceCounter rc = ReferenceCounter.onReleased(() -> {
+        });
+        rc.reserve();
+        rc.release();
+    }
+
+    @Test
+    public void untraced() {
+        ReferenceTracer.sampleOneIn(0);
+        long leaks = ReferenceTracer.leaks();
+        for (int i = 0; i < 10; i++)
+            ReferenceCounter.onReleased(() -> {
+            }).reserve();
+        System.gc();
+        assertEquals(leaks, ReferenceTracer.leaks());
+    }
+}
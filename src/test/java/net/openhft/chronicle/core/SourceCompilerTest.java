@@ -0,0 +1,96 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.function.IntSupplier;
+
+import static org.junit.Assert.*;
+
+public class SourceCompilerTest {
+    private static final String SOURCE = "package gen;\n" +
+            "public class Answer implements java.util.function.IntSupplier {\n" +
+            "    static class Part { int value() { return 21; } }\n" +
+            "    public int getAsInt() { return new Part().value() * 2; }\n" +
+            "}\n";
+
+    @Test
+    public void compileThenCache() throws Exception {
+        File dir = Files.createTempDirectory("compiled").toFile();
+        SourceCompiler compiler = new SourceCompiler(dir);
+        ClassLoader loader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+        Class<?> clazz = compiler.loadFromJava(loader, "gen.Answer", SOURCE);
+        assertEquals(42, ((IntSupplier) clazz.newInstance()).getAsInt());
+        assertEquals(1, compiler.compilations());
+        assertSame(clazz, compiler.loadFromJava(loader, "gen.Answer", SOURCE));
+
+        // a new compiler, as if in a later run, reads the byte code cached.
+        SourceCompiler compiler2 = new SourceCompiler(dir);
+        ClassLoader loader2 = new URLClassLoader(new URL[0], getClass().getClassLoader());
+        Class<?> clazz2 = compiler2.loadFromJava(loader2, "gen.Answer", SOURCE);
+        assertNotSame(clazz, clazz2);
+        assertEquals(42, ((IntSupplier) clazz2.newInstance()).getAsInt());
+        assertEquals(0, compiler2.compilations());
+
+        // a change in the source is compiled again.
+        ClassLoader loader3 = new URLClassLoader(new URL[0], getClass().getClassLoader());
+        Class<?> clazz3 = compiler2.loadFromJava(loader3, "gen.Answer", SOURCE.replace("21", "50"));
+        assertEquals(100, ((IntSupplier) clazz3.newInstance()).getAsInt());
+        assertEquals(1, compiler2.compilations());
+    }
+
+    @Test
+    public void twoCompilersOneLoader() throws Exception {
+        ClassLoader loader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+        Class<?> clazz = new SourceCompiler(null).loadFromJava(loader, "gen.Answer", SOURCE);
+        assertSame(clazz, new SourceCompiler(null).loadFromJava(loader, "gen.Answer", SOURCE));
+    }
+
+    @Test
+    public void loaderNotRetained() throws Exception {
+        SourceCompiler compiler = new SourceCompiler(null);
+        WeakReference<ClassLoader> ref = loadInNewLoader(compiler);
+        for (int i = 0; i < 100 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(ref.get());
+    }
+
+    private WeakReference<ClassLoader> loadInNewLoader(SourceCompiler compiler) throws ClassNotFoundException {
+        ClassLoader loader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+        compiler.loadFromJava(loader, "gen.Answer", SOURCE);
+        return new WeakReference<>(loader);
+    }
+
+    @Test
+    public void compileError() {
+        SourceCompiler compiler = new SourceCompiler(null);
+        try {
+            compiler.loadFromJava("gen.Broken", "package gen; public class Broken { int x = ; }");
+            fail();
+        } catch (ClassNotFoundException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Unable to compile gen.Broken\n1: "));
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.locks;
+
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.OS;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LocksTest {
+    private static final Memory MEMORY = OS.memory();
+    private static final int THREADS = 4;
+    private static final int COUNT = 50_000;
+    // a process id above the largest in use.
+    private static final long DEAD_OWNER = (1L << Locks.PID_BITS) | Locks.PID_MASK;
+
+    private long address;
+
+    private static void runThreads(Runnable runnable) throws InterruptedException {
+        Thread[] threads = new Thread[THREADS];
+        for (int i = 0; i < THREADS; i++)
+            (threads[i] = new Thread(runnable)).start();
+        for (Thread thread : threads)
+            thread.join();
+    }
+
+    @Before
+    public void allocate() {
+        address = MEMORY.allocate(64);
+        MEMORY.setMemory(address, 64, (byte) 0);
+    }
+
+    @After
+    public void free() {
+        MEMORY.freeMemory(address, 64);
+    }
+
+    @Test
+    public void testOwner() {
+        long owner = Locks.currentOwner();
+        assertEquals(OS.getProcessId(), Locks.pidOf(owner));
+        assertFalse(Locks.isOwnerDead(owner));
+        assertTrue(Locks.isOwnerDead(DEAD_OWNER));
+    }
+
+    @Test
+    public void testSpinLock() throws InterruptedException {
+        SpinLock lock = new SpinLock(address);
+        long counter = address + 32;
+        runThreads(() -> {
+            for (int i = 0; i < COUNT; i++) {
+                lock.lock();
+                MEMORY.writeLong(counter, MEMORY.readLong(counter) + 1);
+                lock.unlock();
+            }
+        });
+        assertEquals(THREADS * COUNT, MEMORY.readLong(counter));
+        assertFalse(lock.isLocked());
+
+        MEMORY.writeLong(address, DEAD_OWNER);
+        assertFalse(lock.tryLock());
+        assertTrue(lock.breakIfOwnerDead());
+        assertTrue(lock.tryLock());
+        assertEquals(Locks.currentOwner(), lock.owner());
+    }
+
+    @Test(expected = IllegalMonitorStateException.class)
+    public void testUnlockNotOwner() {
+        new SpinLock(address).unlock();
+    }
+
+    @Test
+    public void testTicketLock() throws InterruptedException {
+        TicketLock lock = new TicketLock(address);
+        long counter = address + 32;
+        runThreads(() -> {
+            for (int i = 0; i < COUNT; i++) {
+                lock.lock();
+                MEMORY.writeLong(counter, MEMORY.readLong(counter) + 1);
+                lock.unlock();
+            }
+        });
+        assertEquals(THREADS * COUNT, MEMORY.readLong(counter));
+        assertFalse(lock.isLocked());
+
+        assertTrue(lock.tryLock());
+        assertEquals(1, lock.queueLength());
+        MEMORY.writeLong(address + 8, DEAD_OWNER);
+        assertTrue(lock.breakIfOwnerDead());
+        assertFalse(lock.isLocked());
+        assertTrue(lock.tryLock());
+        lock.unlock();
+    }
+
+    @Test
+    public void testReadWriteSpinLock() throws InterruptedException {
+        ReadWriteSpinLock lock = new ReadWriteSpinLock(address);
+        long a = address + 32, b = address + 40;
+        runThreads(() -> {
+            for (int i = 0; i < COUNT; i++) {
+                if (i % 4 == 0) {
+                    lock.writeLock();
+                    MEMORY.writeLong(a, MEMORY.readLong(a) + 1);
+                    MEMORY.writeLong(b, MEMORY.readLong(b) + 1);
+                    lock.writeUnlock();
+                } else {
+                    lock.readLock();
+                    if (MEMORY.readLong(a) != MEMORY.readLong(b))
+                        throw new AssertionError();
+                    lock.readUnlock();
+                }
+            }
+        });
+        assertEquals(THREADS * COUNT / 4, MEMORY.readLong(a));
+        assertEquals(0, lock.readerCount());
+
+        assertTrue(lock.tryReadLock());
+        assertTrue(lock.tryReadLock());
+        assertEquals(2, lock.readerCount());
+        assertFalse(lock.tryWriteLock());
+        lock.readUnlock();
+        lock.readUnlock();
+        assertTrue(lock.tryWriteLock());
+        assertTrue(lock.isWriteLocked());
+        assertFalse(lock.tryReadLock());
+        lock.writeUnlock();
+
+        MEMORY.writeLong(address, Long.MIN_VALUE | DEAD_OWNER);
+        assertTrue(lock.breakIfOwnerDead());
+        assertTrue(lock.tryReadLock());
+    }
+
+    @Test
+    public void testSeqLock() throws InterruptedException {
+        SeqLock lock = new SeqLock(address);
+        long a = address + 32, b = address + 40;
+        Thread writer = new Thread(() -> {
+            for (int i = 1; i <= COUNT; i++) {
+                lock.writeLock();
+                MEMORY.writeLong(a, i);
+                MEMORY.writeLong(b, -i);
+                lock.writeUnlock();
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            long seq, x, y;
+            do {
+                seq = lock.readBegin();
+                x = MEMORY.readLong(a);
+                y = MEMORY.readLong(b);
+            } while (lock.readRetry(seq));
+            assertEquals(x, -y);
+        }
+        writer.join();
+        assertEquals(COUNT * 2, lock.sequence());
+
+        assertTrue(lock.tryWriteLock());
+        MEMORY.writeLong(address + 8, DEAD_OWNER);
+        assertTrue(lock.breakIfOwnerDead());
+        assertEquals(COUNT * 2 + 2, lock.readBegin());
+    }
+}
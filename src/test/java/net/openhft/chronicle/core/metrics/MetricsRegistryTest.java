@@ -0,0 +1,71 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.metrics;
+
+import net.openhft.chronicle.core.OS;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class MetricsRegistryTest {
+    @Test
+    public void testWriteAndRead() throws IOException {
+        String filename = OS.TARGET + "/metrics-test-" + System.nanoTime() + ".metrics";
+        new File(OS.TARGET).mkdirs();
+        try (MetricsRegistry registry = MetricsRegistry.create(filename, 16, 32)) {
+            Counter counter = registry.counter("messages");
+            Gauge gauge = registry.gauge("nativeMemoryUsed");
+            for (int i = 0; i < 10; i++)
+                counter.increment();
+            counter.addAtomic(5);
+            gauge.set(1 << 20);
+            assertEquals(15, registry.counter("messages").get());
+
+            try (MetricsReader reader = MetricsReader.open(filename)) {
+                assertEquals(2, reader.count());
+                assertEquals(OS.getProcessId(), reader.pid());
+                assertEquals("messages", reader.name(0));
+                assertSame(MetricType.COUNTER, reader.type(0));
+                assertEquals(15, reader.value(0));
+                assertEquals("nativeMemoryUsed", reader.name(1));
+                assertSame(MetricType.GAUGE, reader.type(1));
+                assertEquals(1 << 20, reader.value(1));
+
+                gauge.set(123);
+                assertEquals(123, reader.value(1));
+            }
+        } finally {
+            new File(filename).delete();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTypeMismatch() throws IOException {
+        String filename = OS.TARGET + "/metrics-test-" + System.nanoTime() + ".metrics";
+        new File(OS.TARGET).mkdirs();
+        try (MetricsRegistry registry = MetricsRegistry.create(filename, 4, 16)) {
+            registry.counter("count");
+            registry.gauge("count");
+        } finally {
+            new File(filename).delete();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.pool;
+
+import net.openhft.chronicle.core.Maths;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentStringInternerTest {
+    // strings which all map to the same set of an interner with 16 sets.
+    private static List<String> colliding(int count) {
+        List<String> strings = new ArrayList<>();
+        int set = Maths.hash("SYM0") & 15;
+        for (int i = 0; strings.size() < count; i++) {
+            String s = "SYM" + i;
+            if ((Maths.hash(s) & 15) == set)
+                strings.add(s);
+        }
+        return strings;
+    }
+
+    @Test
+    public void collisionsDontEvict() {
+        ConcurrentStringInterner interner = new ConcurrentStringInterner(64, 4);
+        assertEquals(64, interner.capacity());
+        List<String> strings = colliding(4);
+        List<String> interned = new ArrayList<>();
+        for (String s : strings)
+            interned.add(interner.intern(new StringBuilder(s)));
+        for (int n = 0; n < 10; n++)
+            for (int i = 0; i < strings.size(); i++)
+                assertSame(interned.get(i), interner.intern(new StringBuilder(strings.get(i))));
+        assertEquals(40, interner.hits());
+        assertEquals(4, interner.misses());
+        assertEquals(0, interner.evictions());
+    }
+
+    @Test
+    public void hotStringSurvives() {
+        ConcurrentStringInterner interner = new ConcurrentStringInterner(64, 4);
+        List<String> strings = colliding(21);
+        String hot = interner.intern(new StringBuilder(strings.get(0)));
+        for (int i = 1; i < strings.size(); i++) {
+            interner.intern(strings.get(i));
+            assertSame(hot, interner.intern(new StringBuilder(strings.get(0))));
+        }
+        assertEquals(21, interner.misses());
+        assertEquals(17, interner.evictions());
+        assertTrue(interner.toString(), interner.toString().endsWith("hitRate=48.7%}"));
+        interner.resetStats();
+        assertEquals(0, interner.hits());
+    }
+
+    @Test
+    public void concurrent() throws InterruptedException {
+        ConcurrentStringInterner interner = new ConcurrentStringInterner(64, 4);
+        AtomicInteger errors = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                StringBuilder sb = new StringBuilder();
+                for (int i = 0; i < 200_000; i++) {
+                    sb.setLength(0);
+                    sb.append("S").append(i % 300);
+                    if (!interner.intern(sb).contentEquals(sb))
+                        errors.incrementAndGet();
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads)
+            t.join();
+        assertEquals(0, errors.get());
+        assertEquals(800_000, interner.hits() + interner.misses());
+    }
+}
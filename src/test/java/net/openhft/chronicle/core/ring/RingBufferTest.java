@@ -0,0 +1,133 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.ring;
+
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.ring.RingBuffer.ProducerType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RingBufferTest {
+    private static final Memory MEMORY = OS.memory();
+
+    @Test
+    public void testWriteRead() {
+        try (RingBuffer rb = RingBuffer.allocate(1024, ProducerType.SINGLE)) {
+            assertTrue(rb.isEmpty());
+            assertEquals(1024 / 8 - 8, rb.maxRecordLength());
+            List<String> records = new ArrayList<>();
+            RecordHandler handler = (type, address, length) -> {
+                byte[] bytes = new byte[length];
+                for (int i = 0; i < length; i++)
+                    bytes[i] = MEMORY.readByte(address + i);
+                records.add(type + ":" + new String(bytes));
+            };
+            // wraps around many times with records of varying length.
+            for (int i = 0; i < 1000; i++) {
+                byte[] bytes = ("record-" + i).getBytes();
+                assertTrue(rb.write(i & 7, bytes, 0, bytes.length));
+                if (i % 3 == 2) {
+                    assertEquals(3, rb.read(handler, 10));
+                    assertEquals((i - 2 & 7) + ":record-" + (i - 2), records.get(0));
+                    assertEquals((i & 7) + ":record-" + i, records.get(2));
+                    records.clear();
+                }
+            }
+            assertEquals(1, rb.read(handler, 10));
+            assertTrue(rb.isEmpty());
+        }
+    }
+
+    @Test
+    public void testFullAndAbort() {
+        try (RingBuffer rb = RingBuffer.allocate(256, ProducerType.SINGLE)) {
+            int count = 0;
+            long address;
+            while ((address = rb.tryClaim(1, 24)) != 0) {
+                MEMORY.writeInt(address, count);
+                if (count == 1)
+                    rb.abort(address);
+                else
+                    rb.commit(address);
+                count++;
+            }
+            assertEquals(256 / 32, count);
+            List<Integer> values = new ArrayList<>();
+            assertEquals(count - 1, rb.read((type, addr, length) -> values.add(MEMORY.readInt(addr)), 100));
+            assertEquals(Integer.valueOf(0), values.get(0));
+            assertEquals(Integer.valueOf(2), values.get(1));
+        }
+    }
+
+    @Test
+    public void testBatchClaim() {
+        try (RingBuffer rb = RingBuffer.allocate(1024, ProducerType.MULTI)) {
+            long address = rb.tryClaim(2, 12, 4);
+            for (int i = 0; i < 4; i++)
+                MEMORY.writeLong(address + i * RingBuffer.recordLength(12), i * 10);
+            // nothing is visible until committed.
+            assertEquals(0, rb.read((type, addr, length) -> fail(), 10));
+            rb.commit(address, 4);
+            long[] sum = {0};
+            assertEquals(4, rb.read((type, addr, length) -> {
+                assertEquals(2, type);
+                assertEquals(12, length);
+                sum[0] += MEMORY.readLong(addr);
+            }, 10));
+            assertEquals(60, sum[0]);
+        }
+    }
+
+    @Test
+    public void testManyProducers() throws InterruptedException {
+        int producers = 4, perProducer = 100_000;
+        try (RingBuffer rb = RingBuffer.allocate(1 << 14, ProducerType.MULTI)) {
+            Thread[] threads = new Thread[producers];
+            for (int p = 0; p < producers; p++) {
+                int type = p;
+                threads[p] = new Thread(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        long address;
+                        while ((address = rb.tryClaim(type, 8)) == 0)
+                            Thread.yield();
+                        MEMORY.writeLong(address, i);
+                        rb.commit(address);
+                    }
+                });
+                threads[p].start();
+            }
+            long[] next = new long[producers];
+            int total = 0;
+            while (total < producers * perProducer) {
+                total += rb.read((type, address, length) -> {
+                    // each producer's records arrive in order.
+                    assertEquals(next[type]++, MEMORY.readLong(address));
+                }, 64);
+            }
+            for (Thread thread : threads)
+                thread.join();
+            for (long n : next)
+                assertEquals(perProducer, n);
+            assertTrue(rb.isEmpty());
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.threads;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class EventLoopTest {
+    @Test
+    public void testAddRemoveAndClose() throws InterruptedException {
+        EventLoop loop = new EventLoop("test-loop", new LongPauser(100, 10, 1, 10, java.util.concurrent.TimeUnit.MILLISECONDS), false);
+        AtomicInteger before = new AtomicInteger();
+        loop.addHandler(() -> before.incrementAndGet() < 0);
+        loop.start();
+
+        AtomicInteger countdown = new AtomicInteger(10);
+        loop.addHandler(() -> {
+            if (countdown.decrementAndGet() <= 0)
+                throw new InvalidEventHandlerException();
+            return true;
+        });
+        AtomicInteger after = new AtomicInteger();
+        EventHandler handler = () -> after.incrementAndGet() < 0;
+        loop.addHandler(handler);
+        while (after.get() < 100)
+            Thread.yield();
+        loop.removeHandler(handler);
+        Thread.sleep(20);
+        int count = after.get();
+        Thread.sleep(20);
+        assertEquals(count, after.get());
+        assertTrue(countdown.get() <= 0);
+        assertTrue(before.get() > 0);
+
+        AtomicBoolean closed = new AtomicBoolean();
+        loop.addHandler(new ClosingHandler(closed));
+        assertTrue(loop.isAlive());
+        loop.close();
+        assertFalse(loop.isAlive());
+        assertTrue(closed.get());
+    }
+
+    @Test
+    public void testNextHandlerRunsAfterRemoval() throws InterruptedException {
+        EventLoop loop = new EventLoop("removal", BusyPauser.INSTANCE, false);
+        loop.addHandler(() -> {
+            throw new InvalidEventHandlerException();
+        });
+        AtomicInteger second = new AtomicInteger();
+        loop.addHandler(() -> second.incrementAndGet() < 0);
+        AtomicInteger secondSeen = new AtomicInteger(-1);
+        loop.addHandler(() -> {
+            secondSeen.compareAndSet(-1, second.get());
+            return false;
+        });
+        loop.start();
+        while (secondSeen.get() < 0)
+            Thread.yield();
+        loop.close();
+        // the second handler ran in the same pass as the first was removed.
+        assertEquals(1, secondSeen.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAddAfterLoopDied() throws InterruptedException {
+        Pauser failing = new Pauser() {
+            @Override
+            public void reset() {
+            }
+
+            @Override
+            public void pause() {
+                throw new IllegalStateException("pauser failed");
+            }
+
+            @Override
+            public void unpause() {
+            }
+
+            @Override
+            public long timePaused() {
+                return 0;
+            }
+
+            @Override
+            public long countPaused() {
+                return 0;
+            }
+        };
+        EventLoop loop = new EventLoop("dies", failing, false);
+        loop.start();
+        for (int i = 0; i < 1000 && loop.isAlive(); i++)
+            Thread.sleep(1);
+        assertFalse(loop.isAlive());
+        loop.addHandler(() -> false);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAddAfterClose() {
+        EventLoop loop = new EventLoop("closed", BusyPauser.INSTANCE, false);
+        loop.close();
+        loop.addHandler(() -> false);
+    }
+
+    static class ClosingHandler implements EventHandler, net.openhft.chronicle.core.io.Closeable {
+        private final AtomicBoolean closed;
+
+        ClosingHandler(AtomicBoolean closed) {
+            this.closed = closed;
+        }
+
+        @Override
+        public boolean action() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+            closed.set(true);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.threads;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class HiccupMonitorTest {
+    @Test
+    public void testSnapshotsAndGc() throws InterruptedException {
+        AtomicLong gcs = new AtomicLong();
+        HiccupMonitor monitor = new HiccupMonitor(1, 100, TimeUnit.MILLISECONDS, 10, s -> gcs.addAndGet(s.gcCount()));
+        monitor.start();
+        try {
+            Thread.sleep(250);
+            HiccupMonitor.Snapshot snapshot = monitor.lastSnapshot();
+            assertNotNull(snapshot);
+            assertTrue(snapshot.toString(), snapshot.samples() > 10);
+            assertTrue(snapshot.max() >= snapshot.p50());
+            assertTrue(monitor.maxStallNS(1000) >= snapshot.max());
+
+            System.gc();
+            for (int i = 0; i < 40 && gcs.get() == 0; i++)
+                Thread.sleep(50);
+            assertTrue(gcs.get() > 0);
+        } finally {
+            monitor.close();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.threads;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PauserTest {
+    @Test
+    public void testLongPauserLadder() {
+        LongPauser pauser = new LongPauser(10, 5, 1, 4, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 10; i++)
+            pauser.pause();
+        assertEquals(0, pauser.countPaused());
+        for (int i = 0; i < 5; i++)
+            pauser.pause();
+        assertEquals(5, pauser.countPaused());
+        long start = System.nanoTime();
+        // parks for 1 + 2 + 4 + 4 ms
+        for (int i = 0; i < 4; i++)
+            pauser.pause();
+        long time = System.nanoTime() - start;
+        assertEquals(9, pauser.countPaused());
+        assertTrue("time " + time, time >= 10_000_000);
+        assertTrue(pauser.timePaused() >= 10);
+        pauser.reset();
+        pauser.pause();
+        assertEquals(9, pauser.countPaused());
+    }
+
+    @Test
+    public void testYieldingPauser() {
+        YieldingPauser pauser = new YieldingPauser(3);
+        for (int i = 0; i < 5; i++)
+            pauser.pause();
+        assertEquals(2, pauser.countPaused());
+    }
+
+    @Test
+    public void testUnpause() throws InterruptedException {
+        LongPauser pauser = new LongPauser(0, 0, 10, 10, TimeUnit.SECONDS);
+        Thread t = new Thread(pauser::pause);
+        long start = System.nanoTime();
+        t.start();
+        while (t.getState() != Thread.State.TIMED_WAITING)
+            Thread.yield();
+        pauser.unpause();
+        t.join();
+        assertTrue(System.nanoTime() - start < 5_000_000_000L);
+        assertEquals(1, pauser.countPaused());
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void testTimeout() throws TimeoutException {
+        TimingPauser pauser = new YieldingPauser(2);
+        long end = System.currentTimeMillis() + 1000;
+        while (System.currentTimeMillis() < end)
+            pauser.pause(10, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void testMilliPauser() {
+        MilliPauser pauser = new MilliPauser(2);
+        for (int i = 0; i < 3; i++)
+            pauser.pause();
+        assertEquals(3, pauser.countPaused());
+        assertTrue(pauser.timePaused() >= 5);
+        assertEquals(0, BusyPauser.INSTANCE.countPaused());
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.threads;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StackSamplerTest {
+    private static StackTraceElement frame(String method, int line) {
+        return new StackTraceElement("com.example.App", method, "App.java", line);
+    }
+
+    @Test
+    public void countsStacksAndTopFrames() {
+        StackSampler sampler = new StackSampler(1, TimeUnit.MILLISECONDS, 8, 16);
+        for (int i = 0; i < 3; i++)
+            sampler.sample(frame("work", 10), frame("main", 5));
+        sampler.sample(frame("work", 10), frame("other", 7));
+        sampler.sample(frame("idle", 20), frame("main", 5));
+        assertEquals(5, sampler.samples());
+        assertEquals(0, sampler.dropped());
+
+        String report = sampler.report();
+        assertTrue(report, report.contains("4 80.0% com.example.App.work(App.java:10)"));
+        assertTrue(report, report.contains("3 60.0% \n\tat com.example.App.work(App.java:10)\n\tat com.example.App.main(App.java:5)"));
+
+        sampler.reset();
+        assertEquals(0, sampler.samples());
+        assertTrue(sampler.report().endsWith("top frames\n\nstacks\n"));
+    }
+
+    @Test
+    public void boundedTable() {
+        StackSampler sampler = new StackSampler(1, TimeUnit.MILLISECONDS, 4, 4);
+        for (int i = 0; i < 100; i++)
+            sampler.sample(frame("m" + i, i));
+        assertEquals(100, sampler.samples());
+        assertTrue(sampler.dropped() >= 90);
+    }
+
+    @Test
+    public void samplesThread() throws Exception {
+        Thread busy = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted())
+                Math.sqrt(System.nanoTime());
+        }, "busy");
+        busy.start();
+        File file = File.createTempFile("stack-sampler", ".txt");
+        file.deleteOnExit();
+        try (StackSampler sampler = new StackSampler(1, TimeUnit.MILLISECONDS, 16, 64)) {
+            sampler.addThread(busy);
+            sampler.start();
+            for (int i = 0; i < 100 && sampler.samples() < 10; i++)
+                Thread.sleep(10);
+            sampler.dump(file.getAbsolutePath());
+        } finally {
+            busy.interrupt();
+        }
+        String text = new String(Files.readAllBytes(file.toPath()));
+        assertTrue(text, text.contains("StackSamplerTest"));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.OS;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class ByteSearchTest {
+    private static int expectedIndexOf(byte[] bytes, int from, int to, byte... any) {
+        for (int i = from; i < to; i++)
+            for (byte b : any)
+                if (bytes[i] == b)
+                    return i;
+        return -1;
+    }
+
+    @Test
+    public void testByteArray() {
+        Random rand = new Random(1);
+        for (int t = 0; t < 2000; t++) {
+            byte[] bytes = new byte[rand.nextInt(70)];
+            for (int i = 0; i < bytes.length; i++)
+                bytes[i] = (byte) (rand.nextInt(40) == 0 ? '\n' : rand.nextInt(256) == 0 ? 0 : 'a' + rand.nextInt(26));
+            int from = bytes.length == 0 ? 0 : rand.nextInt(bytes.length);
+            int to = from + rand.nextInt(bytes.length - from + 1);
+            assertEquals(expectedIndexOf(bytes, from, to, (byte) '\n'), ByteSearch.indexOf(bytes, from, to, (byte) '\n'));
+            assertEquals(expectedIndexOf(bytes, from, to, (byte) 0), ByteSearch.indexOf(bytes, from, to, (byte) 0));
+            assertEquals(expectedIndexOf(bytes, from, to, (byte) '\n', (byte) 'z'),
+                    ByteSearch.indexOfAny(bytes, from, to, (byte) '\n', (byte) 'z'));
+            assertEquals(expectedIndexOf(bytes, from, to, (byte) 'x', (byte) 'y', (byte) 'z', (byte) 0),
+                    ByteSearch.indexOfAny(bytes, from, to, (byte) 'x', (byte) 'y', (byte) 'z', (byte) 0));
+            int count = 0;
+            for (int i = from; i < to; i++)
+                if (bytes[i] == '\n')
+                    count++;
+            assertEquals(count, ByteSearch.count(bytes, from, to, (byte) '\n'));
+        }
+    }
+
+    @Test
+    public void testHighBytes() {
+        byte[] bytes = {(byte) 0x80, (byte) 0xFF, 0x7F, 0x01, (byte) 0xFE, 0, (byte) 0x81, (byte) 0xFF, (byte) 0xFF};
+        assertEquals(1, ByteSearch.indexOf(bytes, 0, bytes.length, (byte) 0xFF));
+        assertEquals(8, ByteSearch.indexOf(bytes, 8, bytes.length, (byte) 0xFF));
+        assertEquals(5, ByteSearch.indexOf(bytes, 0, bytes.length, (byte) 0));
+        assertEquals(3, ByteSearch.count(bytes, 0, bytes.length, (byte) 0xFF));
+        assertEquals(-1, ByteSearch.indexOf(bytes, 0, bytes.length, (byte) 0x02));
+    }
+
+    @Test
+    public void testNativeMemory() {
+        Memory memory = OS.memory();
+        String text = "first line\nsecond,line\r\nthird\n";
+        long address = memory.allocate(text.length());
+        try {
+            for (int i = 0; i < text.length(); i++)
+                memory.writeByte(address + i, (byte) text.charAt(i));
+            assertEquals(10, ByteSearch.indexOf(address, text.length(), (byte) '\n'));
+            assertEquals(17, ByteSearch.indexOfAny(address + 11, text.length() - 11, (byte) ',', (byte) '\r') + 11);
+            assertEquals(22, ByteSearch.indexOfAny(address + 18, text.length() - 18, (byte) '\r', (byte) '\n', (byte) ',') + 18);
+            assertEquals(3, ByteSearch.count(address, text.length(), (byte) '\n'));
+            assertEquals(-1, ByteSearch.indexOf(address, text.length(), (byte) 0));
+        } finally {
+            memory.freeMemory(address, text.length());
+        }
+    }
+}
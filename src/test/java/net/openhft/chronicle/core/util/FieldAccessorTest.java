@@ -0,0 +1,83 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FieldAccessorTest {
+    @Test
+    public void testReadWritePrivateFields() {
+        Sub sub = new Sub();
+        FieldAccessor flag = FieldAccessor.of(Sub.class, "flag");
+        FieldAccessor ch = FieldAccessor.of(Sub.class, "ch");
+        FieldAccessor i = FieldAccessor.of(Sub.class, "i");
+        FieldAccessor l = FieldAccessor.of(Sub.class, "l");
+        FieldAccessor d = FieldAccessor.of(Sub.class, "d");
+        FieldAccessor text = FieldAccessor.of(Sub.class, "text");
+        FieldAccessor id = FieldAccessor.of(Sub.class, "id");
+
+        assertFalse(flag.getBoolean(sub));
+        flag.setBoolean(sub, true);
+        assertTrue(sub.flag);
+        ch.setChar(sub, '\u00e9');
+        assertEquals('\u00e9', sub.ch);
+        i.setOrderedInt(sub, 42);
+        assertEquals(42, i.getVolatileInt(sub));
+        l.setLong(sub, 1L << 40);
+        assertEquals(1L << 40, l.getVolatileLong(sub));
+        d.setDouble(sub, 1.5);
+        assertEquals(1.5, d.getDouble(sub), 0.0);
+        text.setObject(sub, "hello");
+        assertEquals("hello", text.<String>getObject(sub));
+        // final field in the super class
+        assertEquals(7, id.getLong(sub));
+        id.setLong(sub, 8);
+        assertEquals(8, sub.id());
+
+        assertEquals(7, FieldAccessor.accessorsFor(Sub.class).size());
+        assertSame(i, FieldAccessor.of(Sub.class, "i"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoSuchField() {
+        FieldAccessor.of(Sub.class, "nope");
+    }
+
+    static class Base {
+        private final long id;
+
+        Base() {
+            id = 7;
+        }
+
+        long id() {
+            return id;
+        }
+    }
+
+    static class Sub extends Base {
+        static int ignored;
+        private boolean flag;
+        private char ch;
+        private int i;
+        private long l;
+        private double d;
+        private String text;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import net.openhft.chronicle.core.values.Values;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class FixedPointTest {
+    @Test
+    public void testRoundedDivideMatchesBigDecimal() {
+        Random rand = new Random(1);
+        for (RoundingMode mode : RoundingMode.values()) {
+            if (mode == RoundingMode.UNNECESSARY)
+                continue;
+            for (int i = 0; i < 10000; i++) {
+                long n = rand.nextInt(2001) - 1000;
+                long d = rand.nextInt(41) - 20;
+                if (d == 0)
+                    continue;
+                long expected = BigDecimal.valueOf(n).divide(BigDecimal.valueOf(d), 0, mode).longValueExact();
+                assertEquals(n + "/" + d + " " + mode, expected, FixedPoint.roundedDivide(n, d, mode));
+            }
+        }
+    }
+
+    @Test
+    public void testArithmetic() {
+        FixedPoint fp = FixedPoint.of(4);
+        long bid = fp.parse("1.2345"), ask = fp.parse("1.2348");
+        assertEquals(12345, bid);
+        assertEquals(12347, fp.divideBy(fp.add(bid, ask), 2, RoundingMode.HALF_UP));
+        assertEquals(12346, fp.divideBy(fp.add(bid, ask), 2, RoundingMode.HALF_EVEN));
+        assertEquals(-3, fp.subtract(bid, ask));
+        // 1.2345 * 1.1 = 1.35795
+        assertEquals(13580, fp.multiply(bid, fp.fromDouble(1.1), RoundingMode.HALF_UP));
+        assertEquals(13579, fp.multiply(bid, fp.fromDouble(1.1), RoundingMode.HALF_DOWN));
+        assertEquals(123450, fp.multiply(bid, 10));
+        // 1.2345 / 3 = 0.41150
+        assertEquals(4115, fp.divide(bid, fp.parse("3"), RoundingMode.HALF_UP));
+        assertEquals(1.2345, fp.toDouble(bid), 0.0);
+        assertEquals("-0.0003", fp.toString(-3));
+        assertEquals("1.2345", fp.append(new StringBuilder(), bid).toString());
+        assertEquals(123, FixedPoint.of(2).rescale(bid, fp, RoundingMode.HALF_UP));
+        assertEquals(1234500, FixedPoint.of(6).rescale(bid, fp, RoundingMode.HALF_UP));
+    }
+
+    @Test
+    public void testLargeValues() {
+        FixedPoint fp = FixedPoint.of(8);
+        long a = fp.parse("12345678.12345678");
+        long b = fp.parse("2.5");
+        assertEquals("30864195.30864195", fp.toString(fp.multiply(a, b, RoundingMode.HALF_UP)));
+        assertEquals("4938271.24938271", fp.toString(fp.divide(a, b, RoundingMode.HALF_UP)));
+    }
+
+    @Test
+    public void testParseRoundsDroppedDigits() {
+        assertEquals(922337203685477581L, FixedPoint.of(0).parse("922337203685477580.91"));
+        assertEquals(922337203685477581L, FixedPoint.of(18).parse("0.92233720368547758099"));
+        assertEquals(-922337203685477581L, FixedPoint.of(18).parse("-0.922337203685477580500"));
+    }
+
+    @Test
+    public void testFromDoubleRoundsAsAppended() {
+        FixedPoint fp = FixedPoint.of(2);
+        for (double d : new double[]{1.005, 0.285, -1.005, 2.675, 1e13 + 0.125}) {
+            String expected = NumberAppender.append(new StringBuilder(), d, 2).toString();
+            assertEquals(expected, fp.toString(fp.fromDouble(d)));
+        }
+        assertEquals(101, fp.fromDouble(1.005));
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void testFromDoubleNaN() {
+        FixedPoint.of(2).fromDouble(Double.NaN);
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testParseOutOfRange() {
+        FixedPoint.of(1).parse("922337203685477580.91");
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void testOverflow() {
+        FixedPoint fp = FixedPoint.of(8);
+        fp.multiply(fp.parse("90000000000"), fp.parse("1000"), RoundingMode.HALF_UP);
+    }
+
+    @Test
+    public void testFlyweight() {
+        FixedPoint fp = FixedPoint.of(2);
+        Quote quote = Values.newHeapInstance(Quote.class);
+        quote.setBid(fp.parse("99.95"));
+        quote.setAsk(fp.add(quote.getBid(), fp.parse("0.05")));
+        assertEquals("100.00", fp.toString(quote.getAsk()));
+    }
+
+    interface Quote {
+        long getBid();
+
+        void setBid(long bid);
+
+        long getAsk();
+
+        void setAsk(long ask);
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.OS;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class NumberAppenderTest {
+    @Test
+    public void testLong() {
+        long[] values = {0, 1, -1, 9, 10, 99, 100, 123456789, Long.MAX_VALUE, Long.MIN_VALUE, -1000000};
+        StringBuilder sb = new StringBuilder();
+        char[] chars = new char[32];
+        for (long value : values) {
+            sb.setLength(0);
+            assertEquals(Long.toString(value), NumberAppender.append(sb, value).toString());
+            int end = NumberAppender.append(chars, 1, value);
+            assertEquals(Long.toString(value), new String(chars, 1, end - 1));
+            assertEquals(Long.toString(value).length(), NumberAppender.length(value));
+        }
+    }
+
+    @Test
+    public void testFixed() {
+        StringBuilder sb = new StringBuilder();
+        Random rand = new Random(1);
+        for (int i = 0; i < 10000; i++) {
+            double d = (rand.nextInt(2_000_000) - 1_000_000) / 1e4;
+            int dp = i % 7;
+            sb.setLength(0);
+            String expected = new BigDecimal(Double.toString(d)).setScale(dp, RoundingMode.HALF_UP).toPlainString();
+            if (expected.matches("-0\\.?0*"))
+                expected = expected.substring(1);
+            assertEquals(expected, NumberAppender.append(sb, d, dp).toString());
+        }
+        sb.setLength(0);
+        assertEquals("1.01", NumberAppender.append(sb, 1.005, 2).toString());
+        sb.setLength(0);
+        assertEquals("0.29", NumberAppender.append(sb, 0.285, 2).toString());
+        sb.setLength(0);
+        assertEquals("100000000000000000000.00", NumberAppender.append(sb, 1e20, 2).toString());
+        sb.setLength(0);
+        assertEquals("NaN", NumberAppender.append(sb, Double.NaN, 2).toString());
+    }
+
+    @Test
+    public void testFixedMatchesBigDecimal() {
+        StringBuilder sb = new StringBuilder();
+        sb.setLength(0);
+        assertEquals("739821587.861606", NumberAppender.append(sb, 7.398215878616064E8, 6).toString());
+        sb.setLength(0);
+        assertEquals("191507415.025589", NumberAppender.append(sb, 1.9150741502558944E8, 6).toString());
+        Random rand = new Random(3);
+        for (int i = 0; i < 1_500_000; i++) {
+            int exp = rand.nextInt(16) - 3;
+            double d = rand.nextDouble() * Math.pow(10, exp);
+            if (rand.nextBoolean())
+                d = -d;
+            // mostly within the fast path.
+            int dp = rand.nextInt(Math.min(NumberAppender.MAX_DECIMAL_PLACES, 15 - exp) + 1);
+            sb.setLength(0);
+            String expected = new BigDecimal(Double.toString(d)).setScale(dp, RoundingMode.HALF_UP).toPlainString();
+            if (expected.matches("-0\\.?0*"))
+                expected = expected.substring(1);
+            assertEquals(d + " " + dp, expected, NumberAppender.append(sb, d, dp).toString());
+        }
+    }
+
+    @Test
+    public void testShortest() {
+        double[] values = {0.0, -0.0, 1, 0.1, 0.001, 1.5, 100, 9999999.5, 123.456, 1e7, 1e-4,
+                Double.NaN, Double.POSITIVE_INFINITY, Double.MIN_VALUE, Math.PI, -2.5e-3, 0.3};
+        StringBuilder sb = new StringBuilder();
+        char[] chars = new char[32];
+        for (double value : values) {
+            sb.setLength(0);
+            assertEquals(Double.toString(value), NumberAppender.append(sb, value).toString());
+            int end = NumberAppender.append(chars, 0, value);
+            assertEquals(Double.toString(value), new String(chars, 0, end));
+        }
+        Random rand = new Random(2);
+        for (int i = 0; i < 100000; i++) {
+            double d = rand.nextInt(100_000_000) / Math.pow(10, i % 8);
+            sb.setLength(0);
+            assertEquals(Double.toString(d), NumberAppender.append(sb, d).toString());
+        }
+    }
+
+    @Test
+    public void testWrite() {
+        Memory memory = OS.memory();
+        long address = memory.allocate(64);
+        try {
+            long end = NumberAppender.write(address, -12.345, 2);
+            end = NumberAppender.write(end, 7L);
+            end = NumberAppender.write(end, 0.25);
+            StringBuilder sb = new StringBuilder();
+            for (long a = address; a < end; a++)
+                sb.append((char) memory.readByte(a));
+            assertEquals("-12.3570.25", sb.toString());
+        } finally {
+            memory.freeMemory(address, 64);
+        }
+    }
+}
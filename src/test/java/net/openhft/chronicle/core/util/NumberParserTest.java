@@ -0,0 +1,184 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.OS;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NumberParserTest {
+    @Test
+    public void testLong() {
+        NumberParser parser = new NumberParser();
+        long[] values = {0, 1, -1, 12345, Long.MAX_VALUE, Long.MIN_VALUE, 1_000_000_000_000L};
+        for (long value : values) {
+            String s = Long.toString(value);
+            assertTrue(parser.parse(s));
+            assertEquals(s.length(), parser.end());
+            assertTrue(parser.isInteger());
+            assertEquals(value, parser.longValue());
+            assertFalse(parser.overflow());
+        }
+        assertTrue(parser.parse("9223372036854775808"));
+        assertEquals(Long.MAX_VALUE, parser.longValue());
+        assertTrue(parser.overflow());
+        assertTrue(parser.parse("3000000000"));
+        assertEquals(Integer.MAX_VALUE, parser.intValue());
+        assertTrue(parser.overflow());
+        assertTrue(parser.parse("-12.9"));
+        assertEquals(-12, parser.longValue());
+        assertFalse(parser.isInteger());
+    }
+
+    @Test
+    public void testEndAndErrors() {
+        NumberParser parser = new NumberParser();
+        String fix = "44=123.25\u000138=500\u0001";
+        assertTrue(parser.parse(fix, 3, fix.length()));
+        assertEquals(9, parser.end());
+        assertEquals(12325, parser.scaledValue(2));
+        assertTrue(parser.parse(fix, 13, fix.length()));
+        assertEquals(500, parser.intValue());
+        assertEquals(16, parser.end());
+
+        assertFalse(parser.parse(""));
+        assertFalse(parser.parse("-"));
+        assertFalse(parser.parse("abc"));
+        assertFalse(parser.parse("."));
+        // an exponent without digits is not part of the number.
+        assertTrue(parser.parse("12e,"));
+        assertEquals(2, parser.end());
+        assertTrue(parser.isInteger());
+    }
+
+    @Test
+    public void testScaled() {
+        NumberParser parser = new NumberParser();
+        assertTrue(parser.parse("1.23456"));
+        assertEquals(12346, parser.scaledValue(4));
+        assertEquals(1, parser.scaledValue(0));
+        assertTrue(parser.parse("-1.5"));
+        assertEquals(-2, parser.scaledValue(0));
+        assertEquals(-1500, parser.scaledValue(3));
+        assertTrue(parser.parse("2.5e-3"));
+        assertEquals(25, parser.scaledValue(4));
+        assertTrue(parser.parse("0.9999999999999999999"));
+        assertEquals(1, parser.scaledValue(0));
+    }
+
+    @Test
+    public void testScaledWithDroppedDigits() {
+        NumberParser parser = new NumberParser();
+        assertTrue(parser.parse("922337203685477580.91"));
+        assertEquals(922337203685477581L, parser.scaledValue(0));
+        assertEquals(922337203685477580L, parser.longValue());
+        parser.scaledValue(1);
+        assertTrue(parser.overflow());
+        assertTrue(parser.parse("0.92233720368547758099"));
+        assertEquals(922337203685477581L, parser.scaledValue(18));
+        assertTrue(parser.parse("-922337203685477580.5"));
+        assertEquals(-922337203685477581L, parser.scaledValue(0));
+        assertTrue(parser.parse("-9223372036854775808.4"));
+        assertEquals(Long.MIN_VALUE, parser.scaledValue(0));
+        assertFalse(parser.overflow());
+        assertTrue(parser.parse("-9223372036854775808.5"));
+        parser.scaledValue(0);
+        assertTrue(parser.overflow());
+        assertTrue(parser.parse("9223372036854775807.5"));
+        assertEquals(Long.MAX_VALUE, parser.longValue());
+        parser.scaledValue(0);
+        assertTrue(parser.overflow());
+    }
+
+    @Test
+    public void testScaledMatchesBigDecimal() {
+        NumberParser parser = new NumberParser();
+        Random random = new Random(1);
+        for (int i = 0; i < 200_000; i++) {
+            StringBuilder sb = new StringBuilder();
+            if (random.nextBoolean())
+                sb.append('-');
+            int digits = 1 + random.nextInt(24);
+            for (int j = 0; j < digits; j++)
+                sb.append((char) ('0' + random.nextInt(10)));
+            sb.insert(sb.length() - random.nextInt(digits), '.');
+            if (sb.charAt(sb.length() - 1) == '.')
+                sb.append('0');
+            int scale = random.nextInt(19);
+            String text = sb.toString();
+            BigDecimal expected = new BigDecimal(text).setScale(scale, RoundingMode.HALF_UP).movePointRight(scale);
+            assertTrue(text, parser.parse(text));
+            long actual = parser.scaledValue(scale);
+            if (expected.toBigIntegerExact().bitLength() < 64) {
+                assertFalse(text + " " + scale, parser.overflow());
+                assertEquals(text + " " + scale, expected.longValueExact(), actual);
+            } else {
+                assertTrue(text + " " + scale, parser.overflow());
+            }
+        }
+    }
+
+    @Test
+    public void testDouble() {
+        NumberParser parser = new NumberParser();
+        String[] texts = {"0", "-0", "1.5", "0.1", "123.456", "1e10", "-2.5E-3", "1.7976931348623157E308",
+                "4.9E-324", "1e400", "0.30000000000000004", "12345678901234567890.5", "3.141592653589793"};
+        for (String text : texts) {
+            assertTrue(parser.parse(new StringBuilder(text)));
+            assertEquals(text, Double.doubleToLongBits(Double.parseDouble(text)), Double.doubleToLongBits(parser.doubleValue()));
+        }
+        Random rand = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            double d = rand.nextInt(100_000_000) / Math.pow(10, i % 8);
+            String text = Double.toString(d);
+            assertTrue(parser.parse(text));
+            assertEquals(d, parser.doubleValue(), 0.0);
+        }
+    }
+
+    @Test
+    public void testArraysAndMemory() {
+        NumberParser parser = new NumberParser();
+        String text = "x,-1234.5678,y";
+        byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+        assertTrue(parser.parse(bytes, 2, bytes.length));
+        assertEquals(12, parser.end());
+        assertEquals(-1234.5678, parser.doubleValue(), 0.0);
+        assertTrue(parser.parse(text.toCharArray(), 2, bytes.length));
+        assertEquals(12, parser.end());
+        assertEquals(-12345678, parser.scaledValue(4));
+
+        Memory memory = OS.memory();
+        long address = memory.allocate(bytes.length);
+        try {
+            for (int i = 0; i < bytes.length; i++)
+                memory.writeByte(address + i, bytes[i]);
+            assertTrue(parser.parseMemory(address + 2, bytes.length - 2));
+            assertEquals(10, parser.end());
+            assertEquals(-1234, parser.longValue());
+        } finally {
+            memory.freeMemory(address, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.values;
+
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.OS;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NativeArrayValuesTest {
+    @Test
+    public void testIntArrayValues() {
+        try (NativeIntArrayValues values = NativeIntArrayValues.allocate(101)) {
+            assertEquals(101, values.getCapacity());
+            int[] ints = new int[101];
+            Random rand = new Random(1);
+            for (int i = 0; i < ints.length; i++)
+                ints[i] = rand.nextInt();
+            values.copyFrom(0, ints, 0, ints.length);
+
+            // check the odd alignments too.
+            for (int from = 0; from < 4; from++) {
+                for (int to = 97; to <= 101; to++) {
+                    int[] range = Arrays.copyOfRange(ints, from, to);
+                    assertEquals(Arrays.stream(range).asLongStream().sum(), values.sum(from, to));
+                    assertEquals(Arrays.stream(range).min().getAsInt(), values.min(from, to));
+                    assertEquals(Arrays.stream(range).max().getAsInt(), values.max(from, to));
+                }
+            }
+            int[] ints2 = new int[10];
+            values.copyTo(5, ints2, 0, 10);
+            assertArrayEquals(Arrays.copyOfRange(ints, 5, 15), ints2);
+
+            values.fill(1, 100, -3);
+            assertEquals(ints[0], values.getValueAt(0));
+            assertEquals(-3, values.getValueAt(1));
+            assertEquals(-3, values.getValueAt(99));
+            assertEquals(ints[100], values.getValueAt(100));
+            assertEquals(-3 * 99, values.sum(1, 100));
+
+            assertTrue(values.compareAndSet(2, -3, 7));
+            assertFalse(values.compareAndSet(2, -3, 8));
+            assertEquals(10, values.addAtomicValueAt(2, 3));
+            values.setOrderedValueAt(3, 11);
+            assertEquals(11, values.getVolatileValueAt(3));
+
+            for (int i = 0; i < 101; i++)
+                values.setValueAt(i, i * 2);
+            assertEquals(21, values.binarySearch(0, 101, 42));
+            assertEquals(-22, values.binarySearch(0, 101, 41));
+            assertEquals(-102, values.binarySearch(0, 101, 1000));
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testIntOutOfBounds() {
+        try (NativeIntArrayValues values = NativeIntArrayValues.allocate(4)) {
+            values.getValueAt(4);
+        }
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void testCopyOutOfBounds() {
+        try (NativeIntArrayValues values = NativeIntArrayValues.allocate(16)) {
+            values.copyTo(0, new int[8], 4, 8);
+        }
+    }
+
+    @Test
+    public void testDoubleArrayValues() {
+        try (NativeDoubleArrayValues values = NativeDoubleArrayValues.allocate(20)) {
+            double[] doubles = new double[20];
+            for (int i = 0; i < doubles.length; i++)
+                doubles[i] = i - 9.5;
+            values.copyFrom(0, doubles, 0, doubles.length);
+            assertEquals(Arrays.stream(doubles).sum(), values.sum(0, 20), 0);
+            assertEquals(-9.5, values.min(0, 20), 0);
+            assertEquals(9.5, values.max(0, 20), 0);
+            assertEquals(3, values.binarySearch(0, 20, -6.5));
+            assertEquals(-4, values.binarySearch(0, 20, -6.6));
+
+            assertTrue(values.compareAndSet(0, -9.5, 1.5));
+            assertFalse(values.compareAndSet(0, -9.5, 2.5));
+            assertEquals(2.0, values.addAtomicValueAt(0, 0.5), 0);
+            values.setOrderedValueAt(1, Double.NaN);
+            assertTrue(Double.isNaN(values.getVolatileValueAt(1)));
+
+            values.fill(5, 10, 0.25);
+            double[] doubles2 = new double[7];
+            values.copyTo(4, doubles2, 1, 6);
+            assertArrayEquals(new double[]{0, -5.5, 0.25, 0.25, 0.25, 0.25, 0.25}, doubles2, 0);
+        }
+    }
+
+    @Test
+    public void testByteArrayValues() {
+        try (NativeByteArrayValues values = NativeByteArrayValues.allocate(37)) {
+            byte[] bytes = new byte[37];
+            new Random(2).nextBytes(bytes);
+            values.copyFrom(0, bytes, 0, bytes.length);
+            for (int from = 0; from < 8; from++) {
+                long sum = 0;
+                int min = Byte.MAX_VALUE, max = Byte.MIN_VALUE;
+                for (int i = from; i < 37; i++) {
+                    sum += bytes[i];
+                    min = Math.min(min, bytes[i]);
+                    max = Math.max(max, bytes[i]);
+                }
+                assertEquals(sum, values.sum(from, 37));
+                assertEquals(min, values.min(from, 37));
+                assertEquals(max, values.max(from, 37));
+            }
+
+            for (int i = 0; i < 8; i++) {
+                byte b = values.getValueAt(i);
+                assertFalse(values.compareAndSet(i, (byte) (b + 1), (byte) 0));
+                assertTrue(values.compareAndSet(i, b, (byte) -i));
+                assertEquals(-i, values.getVolatileValueAt(i));
+            }
+            // the neighbouring bytes are unchanged.
+            assertEquals(bytes[8], values.getValueAt(8));
+
+            values.fill(0, 37, (byte) -1);
+            assertEquals(-37, values.sum(0, 37));
+            byte[] bytes2 = new byte[37];
+            values.copyTo(0, bytes2, 0, 37);
+            for (byte b : bytes2)
+                assertEquals(-1, b);
+        }
+    }
+
+    @Test
+    public void testClose() throws InterruptedException {
+        Memory memory = OS.memory();
+        long used = memory.nativeMemoryUsed();
+        NativeIntArrayValues values = NativeIntArrayValues.allocate(64);
+        assertEquals(used + 256, memory.nativeMemoryUsed());
+        values.close();
+        values.close();
+        assertEquals(used, memory.nativeMemoryUsed());
+
+        NativeDoubleArrayValues.allocate(64);
+        for (int i = 0; i < 100 && memory.nativeMemoryUsed() != used; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertEquals(used, memory.nativeMemoryUsed());
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.values;
+
+import net.openhft.chronicle.core.values.NativeStringValue.Encoding;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NativeStringValueTest {
+    @Test
+    public void testLatin1() {
+        try (NativeStringValue value = NativeStringValue.allocate(16, Encoding.LATIN1)) {
+            assertEquals("", value.getValue());
+            value.setValue("EUR/USD");
+            StringBuilder sb = new StringBuilder();
+            assertSame(sb, value.getUsingValue(sb));
+            assertEquals("EUR/USD", sb.toString());
+            value.setValue("caf\u00e9 \u20ac");
+            assertEquals("caf\u00e9 ?", value.getValue());
+            value.setValue(null);
+            assertNull(value.getValue());
+            assertNull(value.getUsingValue(sb));
+        }
+    }
+
+    @Test
+    public void testUtf8() {
+        try (NativeStringValue value = NativeStringValue.allocate(16, Encoding.UTF8)) {
+            String s = "\u00e9\u20ac\ud83d\ude00x";
+            assertEquals(2 + 3 + 4 + 1, NativeStringValue.utf8Length(s));
+            value.setValue(s);
+            assertEquals(s, value.getValue());
+            value.setValue("0123456789abcdef");
+            assertEquals("0123456789abcdef", value.getValue());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooLong() {
+        try (NativeStringValue value = NativeStringValue.allocate(8, Encoding.UTF8)) {
+            value.setValue("\u20ac\u20ac\u20ac");
+        }
+    }
+
+    @Test
+    public void testMaxBytesFor() throws NoSuchMethodException {
+        assertEquals(64, NativeStringValue.maxBytesFor(StringValue.class.getMethod("setValue", CharSequence.class)));
+    }
+
+    @Test
+    public void testNoTornReads() throws InterruptedException {
+        String a = "short", b = "a much longer value";
+        try (NativeStringValue value = NativeStringValue.allocate(32, Encoding.UTF8)) {
+            value.setValue(a);
+            Thread writer = new Thread(() -> {
+                for (int i = 0; i < 200_000; i++)
+                    value.setValue((i & 1) == 0 ? b : a);
+            });
+            writer.start();
+            StringBuilder sb = new StringBuilder();
+            while (writer.isAlive()) {
+                value.getUsingValue(sb);
+                String s = sb.toString();
+                if (!s.equals(a) && !s.equals(b))
+                    fail("Torn read " + s);
+            }
+            writer.join();
+        }
+    }
+}
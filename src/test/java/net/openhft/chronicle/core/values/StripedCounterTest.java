@@ -0,0 +1,54 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.values;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class StripedCounterTest {
+    @Test
+    public void testAddAndSum() throws InterruptedException {
+        try (StripedCounter counter = StripedCounter.allocate(8)) {
+            Thread[] threads = new Thread[6];
+            for (int t = 0; t < threads.length; t++) {
+                threads[t] = new Thread(() -> {
+                    for (int i = 0; i < 100_000; i++)
+                        counter.increment();
+                    counter.add(counter.stripe() + 8, 5);
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads)
+                thread.join();
+            assertEquals(6 * 100_005, counter.sum());
+
+            // as a monitoring process would see it.
+            StripedCounter reader = StripedCounter.bind(counter.address());
+            assertEquals(8, reader.stripes());
+            assertEquals(6 * 100_005, reader.sumThenReset());
+            assertEquals(0, counter.sum());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testStripesMismatch() {
+        try (StripedCounter counter = StripedCounter.allocate(4)) {
+            new StripedCounter(counter.address(), 8);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.values;
+
+import net.openhft.chronicle.core.OS;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class ValuesTest {
+    @Test
+    public void testLayout() {
+        // 8 + 8 + 4 + 4 + 2 + 1 + 1 = 28, then the string of 8 + 16 bytes, padded to 56
+        assertEquals(56, Values.sizeOf(Order.class));
+    }
+
+    @Test
+    public void testNative() {
+        long size = Values.sizeOf(Order.class);
+        long address = OS.memory().allocate(size * 2);
+        try {
+            OS.memory().setMemory(address, size * 2, (byte) 0);
+            Order order = Values.newNativeReference(Order.class);
+            Flyweight flyweight = (Flyweight) order;
+            assertEquals(size, flyweight.size());
+            flyweight.bindAddress(address + size);
+            assertEquals(address + size, flyweight.address());
+            checkOrder(order);
+
+            // a second reference sees the same data.
+            Order order2 = Values.newNativeReference(Order.class);
+            ((Flyweight) order2).bindAddress(address + size);
+            assertEquals(123456789012L, order2.getId());
+            assertEquals("EURUSD", order2.getSymbol());
+        } finally {
+            OS.memory().freeMemory(address, size * 2);
+        }
+    }
+
+    @Test
+    public void testHeap() {
+        Order order = Values.newHeapInstance(Order.class);
+        assertFalse(order instanceof Flyweight);
+        assertSame(Values.heapClassFor(Order.class), order.getClass());
+        checkOrder(order);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupported() {
+        Values.sizeOf(Unsupported.class);
+    }
+
+    @Test
+    public void testPlainFieldWithReservedPrefix() {
+        Fill fill = Values.newHeapInstance(Fill.class);
+        fill.setOrderedQuantity(5);
+        fill.setVolatileFlag(3);
+        assertEquals(5, fill.getOrderedQuantity());
+        assertEquals(3, fill.getVolatileFlag());
+        assertEquals(16, Values.sizeOf(Fill.class));
+    }
+
+    @Test
+    public void testLongValue() {
+        assertEquals(8, Values.sizeOf(LongValue.class));
+        checkLongValue(Values.newHeapInstance(LongValue.class));
+        long address = OS.memory().allocate(8);
+        try {
+            OS.memory().writeLong(address, 0L);
+            LongValue value = Values.newNativeReference(LongValue.class);
+            ((Flyweight) value).bindAddress(address);
+            checkLongValue(value);
+            assertEquals(1L << 40, OS.memory().readLong(address));
+        } finally {
+            OS.memory().freeMemory(address, 8);
+        }
+    }
+
+    private void checkLongValue(LongValue value) {
+        value.setValue(10);
+        assertEquals(15, value.addValue(5));
+        assertEquals(12, value.addAtomicValue(-3));
+        assertTrue(value.compareAndSwapValue(12, 1L << 40));
+        assertEquals(1L << 40, value.getVolatileValue());
+    }
+
+    @Test
+    public void testIntValue() throws InterruptedException {
+        assertEquals(8, Values.sizeOf(IntValue.class));
+        IntValue value = Values.newHeapInstance(IntValue.class);
+        value.setOrderedValue(Integer.MAX_VALUE);
+        assertEquals(Integer.MIN_VALUE, value.addValue(1));
+        value.setValue(0);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++)
+                    value.addAtomicValue(1);
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads)
+            t.join();
+        assertEquals(400_000, value.getVolatileValue());
+    }
+
+    @Test
+    public void testConcurrentFirstUse() throws Exception {
+        Class<?>[] types = {A.class, B.class, C.class, D.class, E.class, F.class};
+        int threads = 8;
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        ExecutorService service = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++)
+                futures.add(service.submit(() -> {
+                    barrier.await();
+                    for (Class<?> type : types) {
+                        assertTrue(type.isInstance(Values.newNativeReference(type)));
+                        assertTrue(type.isInstance(Values.newHeapInstance(type)));
+                    }
+                    return null;
+                }));
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    private void checkOrder(Order order) {
+        assertEquals("", order.getSymbol());
+        assertFalse(order.isActive());
+        order.setId(123456789012L);
+        order.setPrice(1.2345);
+        order.setQuantity(1000);
+        order.setSide('B');
+        order.setFlags((byte) -1);
+        order.setActive(true);
+        order.setSymbol("EURUSD");
+        order.setOrderedVersion(5);
+        assertTrue(order.compareAndSwapVersion(5, 6));
+        assertFalse(order.compareAndSwapVersion(5, 7));
+
+        assertEquals(123456789012L, order.getId());
+        assertEquals(1.2345, order.getPrice(), 0);
+        assertEquals(1000, order.getQuantity());
+        assertEquals('B', order.getSide());
+        assertEquals(-1, order.getFlags());
+        assertTrue(order.isActive());
+        assertEquals("EURUSD", order.getSymbol());
+        assertEquals("EURUSD", order.getUsingSymbol(new StringBuilder()).toString());
+        assertEquals(6, order.getVolatileVersion());
+        order.setSide('\uFFFF');
+        assertEquals('\uFFFF', order.getSide());
+    }
+
+    interface Order {
+        long getId();
+
+        void setId(long id);
+
+        double getPrice();
+
+        void setPrice(double price);
+
+        int getQuantity();
+
+        void setQuantity(int quantity);
+
+        int getVolatileVersion();
+
+        void setOrderedVersion(int version);
+
+        boolean compareAndSwapVersion(int expected, int version);
+
+        char getSide();
+
+        void setSide(char side);
+
+        byte getFlags();
+
+        void setFlags(byte flags);
+
+        boolean isActive();
+
+        void setActive(boolean active);
+
+        String getSymbol();
+
+        StringBuilder getUsingSymbol(StringBuilder sb);
+
+        void setSymbol(@MaxBytes(16) CharSequence symbol);
+    }
+
+    interface Fill {
+        long getOrderedQuantity();
+
+        void setOrderedQuantity(long quantity);
+
+        int getVolatileFlag();
+
+        void setVolatileFlag(int flag);
+    }
+
+    interface A {
+        int getA();
+
+        void setA(int a);
+    }
+
+    interface B {
+        long getB();
+
+        void setB(long b);
+    }
+
+    interface C {
+        double getC();
+
+        void setC(double c);
+    }
+
+    interface D {
+        short getD();
+
+        void setD(short d);
+    }
+
+    interface E {
+        byte getE();
+
+        void setE(byte e);
+    }
+
+    interface F {
+        boolean isF();
+
+        void setF(boolean f);
+    }
+
+    interface Unsupported {
+        Object getObject();
+    }
+}